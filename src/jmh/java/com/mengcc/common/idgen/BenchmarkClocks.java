@@ -0,0 +1,26 @@
+package com.mengcc.common.idgen;
+
+/**
+ * 基准测试中按名称选择时钟实现
+ *
+ * @author zhouzq
+ * @date 2020/5/6
+ */
+final class BenchmarkClocks {
+
+    private BenchmarkClocks() {
+    }
+
+    static MillisClock of(String name) {
+        switch (name) {
+            case "system":
+                return SystemMillisClock.INSTANCE;
+            case "monotonic":
+                return new MonotonicMillisClock();
+            case "ticking":
+                return TickingMillisClock.getInstance();
+            default:
+                throw new IllegalArgumentException("unknown clock: " + name);
+        }
+    }
+}
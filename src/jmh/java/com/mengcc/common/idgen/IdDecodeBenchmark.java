@@ -0,0 +1,68 @@
+package com.mengcc.common.idgen;
+
+import com.mengcc.common.vo.IdVo;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 解析雪花算法ID的开销
+ *
+ * @author zhouzq
+ * @date 2020/5/6
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IdDecodeBenchmark {
+
+    private static final int SIZE = 1024;
+
+    private final long[] ids = new long[SIZE];
+
+    private final long[] timestamps = new long[SIZE];
+
+    private final long[] workerIds = new long[SIZE];
+
+    private int index;
+
+    @Setup
+    public void setup() {
+        new SnowflakeIdGenerator(1L, 1L).fill(ids, 0, SIZE);
+    }
+
+    private long nextId() {
+        return ids[index++ & (SIZE - 1)];
+    }
+
+    @Benchmark
+    public IdVo analysisId() {
+        return SnowflakeIdGenerator.analysisId(nextId());
+    }
+
+    @Benchmark
+    public void layoutFields(Blackhole blackhole) {
+        long id = nextId();
+        SnowflakeLayout layout = SnowflakeLayout.DEFAULT;
+        blackhole.consume(layout.timestampOf(id));
+        blackhole.consume(layout.datacenterIdOf(id));
+        blackhole.consume(layout.workerIdOf(id));
+        blackhole.consume(layout.sequenceOf(id));
+    }
+
+    @Benchmark
+    public long timestampOf() {
+        return SnowflakeIdGenerator.timestampOf(nextId());
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(SIZE)
+    public long[] bulkDecode() {
+        SnowflakeIdDecoder.DEFAULT.decode(ids, timestamps, null, workerIds, null);
+        return timestamps;
+    }
+}
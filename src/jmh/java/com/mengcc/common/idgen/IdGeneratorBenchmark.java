@@ -0,0 +1,103 @@
+package com.mengcc.common.idgen;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 各基于时钟的{@link IdGenerator}实现在不同时钟、不同线程数下的单个/批量发号吞吐量，
+ * 号段模式不依赖时钟，见{@link SegmentIdGeneratorBenchmark}
+ *
+ * @author zhouzq
+ * @date 2020/5/6
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IdGeneratorBenchmark {
+
+    private static final int BATCH_SIZE = 1000;
+
+    @Param({"snowflake", "cas", "sharded", "cached"})
+    private String generator;
+
+    @Param({"system", "monotonic", "ticking"})
+    private String clock;
+
+    private IdGenerator idGenerator;
+
+    @Setup
+    public void setup() {
+        MillisClock millisClock = BenchmarkClocks.of(clock);
+        switch (generator) {
+            case "snowflake":
+                idGenerator = new SnowflakeIdGenerator(1L, 1L, millisClock);
+                break;
+            case "cas":
+                idGenerator = new CasSnowflakeIdGenerator(1L, 1L, millisClock);
+                break;
+            case "sharded":
+                int shards = Integer.highestOneBit(Runtime.getRuntime().availableProcessors() * 2 - 1);
+                idGenerator = new ShardedSnowflakeIdGenerator(1L, 1L, shards, millisClock);
+                break;
+            case "cached":
+                idGenerator = new CachedIdGenerator(SnowflakeLayout.DEFAULT, 1L, 1L,
+                        CachedIdGenerator.DEFAULT_BUFFER_SIZE, CachedIdGenerator.DEFAULT_PADDING_PERCENT, millisClock);
+                break;
+            default:
+                throw new IllegalArgumentException("unknown generator: " + generator);
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        if (idGenerator instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) idGenerator).close();
+            } catch (Exception ignored) {
+                // ignore
+            }
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long generateId_1() {
+        return idGenerator.generateId();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long generateId_4() {
+        return idGenerator.generateId();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public long generateId_16() {
+        return idGenerator.generateId();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public long generateId_64() {
+        return idGenerator.generateId();
+    }
+
+    @Benchmark
+    @Threads(1)
+    @OperationsPerInvocation(BATCH_SIZE)
+    public long[] generateIds_1() {
+        return idGenerator.generateIds(BATCH_SIZE);
+    }
+
+    @Benchmark
+    @Threads(16)
+    @OperationsPerInvocation(BATCH_SIZE)
+    public long[] generateIds_16() {
+        return idGenerator.generateIds(BATCH_SIZE);
+    }
+}
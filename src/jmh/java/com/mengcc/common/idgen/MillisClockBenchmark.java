@@ -0,0 +1,42 @@
+package com.mengcc.common.idgen;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 各{@link MillisClock}实现读取一次时间的开销，以及原先基于LocalDateTime取时间的方式作为对照
+ *
+ * @author zhouzq
+ * @date 2020/5/6
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class MillisClockBenchmark {
+
+    @Param({"system", "monotonic", "ticking"})
+    private String clock;
+
+    private MillisClock millisClock;
+
+    @Setup
+    public void setup() {
+        millisClock = BenchmarkClocks.of(clock);
+    }
+
+    @Benchmark
+    public long currentMillis() {
+        return millisClock.currentMillis();
+    }
+
+    @Benchmark
+    public long localDateTimeBaseline() {
+        return LocalDateTime.now().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,67 @@
+package com.mengcc.common.idgen;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link SegmentIdGenerator}在不同线程数下的单个/批量发号吞吐量，号段模式不读时钟，因此不按时钟参数展开
+ *
+ * @author zhouzq
+ * @date 2020/5/28
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class SegmentIdGeneratorBenchmark {
+
+    private static final int BATCH_SIZE = 1000;
+
+    private IdGenerator idGenerator;
+
+    @Setup
+    public void setup() {
+        idGenerator = new SegmentIdGenerator(new InMemorySegmentStore(), "benchmark");
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long generateId_1() {
+        return idGenerator.generateId();
+    }
+
+    @Benchmark
+    @Threads(4)
+    public long generateId_4() {
+        return idGenerator.generateId();
+    }
+
+    @Benchmark
+    @Threads(16)
+    public long generateId_16() {
+        return idGenerator.generateId();
+    }
+
+    @Benchmark
+    @Threads(64)
+    public long generateId_64() {
+        return idGenerator.generateId();
+    }
+
+    @Benchmark
+    @Threads(1)
+    @OperationsPerInvocation(BATCH_SIZE)
+    public long[] generateIds_1() {
+        return idGenerator.generateIds(BATCH_SIZE);
+    }
+
+    @Benchmark
+    @Threads(16)
+    @OperationsPerInvocation(BATCH_SIZE)
+    public long[] generateIds_16() {
+        return idGenerator.generateIds(BATCH_SIZE);
+    }
+}
@@ -0,0 +1,116 @@
+package com.mengcc.common.context;
+
+import com.google.common.base.Preconditions;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link ThreadContext}的泄漏与占用诊断, 默认关闭, 关闭时读写上下文只多一次volatile读.
+ *
+ * <pre>
+ * 开启后每个使用过上下文的线程登记到注册表(弱引用线程, 线程结束后自动移除), 采样时可以得到:
+ * 1. 当前变量个数及开启诊断以来的最大值(high-water mark);
+ * 2. 滞留变量: 设置后超过maxEntryAge仍未删除、且期间没有调用{@link ThreadContext#close()}的变量,
+ *    通常是请求结束时漏掉了close, 值会泄漏到该线程处理的下一个请求并且一直无法回收.
+ *
+ * ContextDiagnostics.enable(30, TimeUnit.SECONDS);
+ * for (ContextSample sample : ContextDiagnostics.sampleLeaks()) {
+ *     log.warn(">> thread context leak: {}", sample);
+ * }
+ * </pre>
+ *
+ * @author zhouzq
+ * @date 2020/5/21
+ */
+public final class ContextDiagnostics {
+
+    static volatile boolean enabled;
+
+    /**
+     * 每次开启诊断时加一, 线程据此判断是否需要重新登记
+     */
+    static volatile int generation;
+
+    private static volatile long maxEntryAgeNanos;
+
+    static final ReferenceQueue<Thread> DEAD_THREADS = new ReferenceQueue<>();
+
+    private static final Set<ThreadContext.Holder> LIVE_CONTEXTS = ConcurrentHashMap.newKeySet();
+
+    private ContextDiagnostics() {
+    }
+
+    /**
+     * 开启诊断, 已经开启时重新开始统计
+     *
+     * @param maxEntryAge 变量超过多长时间未删除视为滞留, 一般取请求的最长处理时间
+     * @param unit        时间单位
+     */
+    public static synchronized void enable(long maxEntryAge, TimeUnit unit) {
+        Preconditions.checkArgument(maxEntryAge > 0, "maxEntryAge must be greater than 0");
+        LIVE_CONTEXTS.clear();
+        maxEntryAgeNanos = unit.toNanos(maxEntryAge);
+        generation++;
+        enabled = true;
+    }
+
+    /**
+     * 关闭诊断并清空注册表
+     */
+    public static synchronized void disable() {
+        enabled = false;
+        LIVE_CONTEXTS.clear();
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * 对所有登记的线程上下文采样
+     *
+     * @return 各线程的采样结果, 未开启诊断时为空
+     */
+    public static List<ContextSample> sample() {
+        expungeDeadThreads();
+        long now = System.nanoTime();
+        long maxAge = maxEntryAgeNanos;
+        List<ContextSample> samples = new ArrayList<>(LIVE_CONTEXTS.size());
+        for (ThreadContext.Holder holder : LIVE_CONTEXTS) {
+            samples.add(holder.sample(now, maxAge));
+        }
+        return samples;
+    }
+
+    /**
+     * 只返回存在滞留变量的线程
+     */
+    public static List<ContextSample> sampleLeaks() {
+        List<ContextSample> leaks = new ArrayList<>();
+        for (ContextSample sample : sample()) {
+            if (!sample.getStaleKeys().isEmpty()) {
+                leaks.add(sample);
+            }
+        }
+        return leaks;
+    }
+
+    static void register(ThreadContext.Holder holder) {
+        expungeDeadThreads();
+        if (enabled) {
+            LIVE_CONTEXTS.add(holder);
+        }
+    }
+
+    private static void expungeDeadThreads() {
+        for (Reference<? extends Thread> ref; (ref = DEAD_THREADS.poll()) != null; ) {
+            LIVE_CONTEXTS.remove(ref);
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package com.mengcc.common.context;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@link ThreadContext}中变量的类型化key, 创建时分配固定的槽位, 线程上下文按槽位存放在数组中,
+ * 读写只需一次数组访问, 不需要计算哈希, 也不需要强制类型转换.
+ *
+ * <pre>
+ * public static final ContextKey&lt;String&gt; TENANT_ID = ContextKey.of("tenantId", String.class);
+ *
+ * ThreadContext.set(TENANT_ID, "t1");
+ * String tenantId = ThreadContext.get(TENANT_ID);
+ * </pre>
+ *
+ * 同名的key是同一个实例, 声明后{@link ThreadContext#get(String)}等字符串API也读写同一个槽位.
+ * 同名的key只能声明为同一种类型, 字符串API写入的值也必须是声明的类型.
+ * 没有声明过的字符串key不分配槽位, 存放在每个线程自己的Map中, 用多少个动态拼接的字符串都不会占用槽位.
+ * <p>
+ * 槽位分配后不会回收, 每个线程的存储随槽位数增长, 因此最多声明{@link #MAX_KEYS}个key, 超出时抛出异常.
+ * key应声明为常量, 不要在运行时动态声明.
+ *
+ * @author zhouzq
+ * @date 2020/5/19
+ */
+public final class ContextKey<T> {
+
+    /**
+     * 最多可以分配的槽位数
+     */
+    public static final int MAX_KEYS = 1024;
+
+    private static final ConcurrentMap<String, ContextKey<?>> KEYS = new ConcurrentHashMap<>();
+
+    /**
+     * 按槽位排列的全部key, 仅在持有类锁时替换
+     */
+    private static volatile ContextKey<?>[] slots = new ContextKey<?>[0];
+
+    private final String name;
+
+    final int slot;
+
+    /**
+     * 变量值的类型
+     */
+    private final Class<?> type;
+
+    private ContextKey(String name, int slot, Class<?> type) {
+        this.name = name;
+        this.slot = slot;
+        this.type = type;
+    }
+
+    /**
+     * 声明指定名称和类型的key, 首次使用时分配槽位
+     *
+     * @param name key的名称
+     * @param type 变量值的类型
+     * @param <T>  变量值的类型
+     * @return 同名的key总是同一个实例
+     * @throws IllegalArgumentException 同名的key已经声明为其他类型
+     * @throws IllegalStateException    槽位已经用完
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> ContextKey<T> of(String name, Class<? super T> type) {
+        Preconditions.checkNotNull(name, "name can't be null");
+        Preconditions.checkNotNull(type, "type can't be null");
+        Preconditions.checkArgument(!type.isPrimitive(), "type of context key [%s] can't be primitive: %s", name, type);
+        ContextKey<?> key = KEYS.get(name);
+        if (key == null || key.type != type) {
+            key = declare(name, type);
+        }
+        return (ContextKey<T>) key;
+    }
+
+    /**
+     * 查找已声明的key, 不分配槽位
+     *
+     * @param name key的名称
+     * @return 没有声明过时返回null
+     */
+    static ContextKey<?> find(String name) {
+        return KEYS.get(name);
+    }
+
+    /**
+     * 槽位对应的key
+     */
+    static ContextKey<?> ofSlot(int slot) {
+        return slots[slot];
+    }
+
+    /**
+     * 已分配的槽位数
+     */
+    static int slotCount() {
+        return slots.length;
+    }
+
+    private static synchronized ContextKey<?> declare(String name, Class<?> type) {
+        ContextKey<?> key = KEYS.get(name);
+        if (key == null) {
+            ContextKey<?>[] current = slots;
+            Preconditions.checkState(current.length < MAX_KEYS,
+                    "too many context keys (%s), declare keys as constants instead of building names dynamically: %s", MAX_KEYS, name);
+            key = new ContextKey<>(name, current.length, type);
+            ContextKey<?>[] grown = Arrays.copyOf(current, current.length + 1);
+            grown[key.slot] = key;
+            slots = grown;
+            KEYS.put(name, key);
+        } else if (key.type != type) {
+            throw new IllegalArgumentException(String.format(
+                    "context key [%s] is already declared as %s, can't redeclare as %s", name, key.type.getName(), type.getName()));
+        }
+        return key;
+    }
+
+    /**
+     * 校验字符串API写入的值是否符合声明的类型
+     *
+     * @param value 变量值
+     * @return value本身
+     * @throws ClassCastException 值不是声明的类型
+     */
+    Object checkValue(Object value) {
+        if (value != null && !type.isInstance(value)) {
+            throw new ClassCastException(String.format(
+                    "context key [%s] is declared as %s, but value is %s", name, type.getName(), value.getClass().getName()));
+        }
+        return value;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 声明的变量值类型
+     */
+    public Class<?> getType() {
+        return type;
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+}
@@ -0,0 +1,165 @@
+package com.mengcc.common.context;
+
+import com.google.common.base.Preconditions;
+
+import java.util.concurrent.Callable;
+import java.util.function.Supplier;
+
+/**
+ * 把提交线程的{@link ThreadContext}传递到执行线程的任务包装, 包装时取得上下文快照,
+ * 执行时安装到执行线程, 执行完成后恢复执行线程原有的上下文.
+ *
+ * <pre>
+ * executor.execute(ContextPropagation.runnable(task));
+ * CompletableFuture.supplyAsync(ContextPropagation.supplier(supplier), executor);
+ * </pre>
+ *
+ * @author zhouzq
+ * @date 2020/5/18
+ */
+public final class ContextPropagation {
+
+    private ContextPropagation() {
+    }
+
+    public static Runnable runnable(Runnable task) {
+        if (task instanceof ContextRunnable) {
+            return task;
+        }
+        return new ContextRunnable(task, ThreadContext.capture());
+    }
+
+    /**
+     * 使用指定的快照作为任务执行期间的上下文
+     *
+     * @param task     任务
+     * @param snapshot 执行期间安装的上下文快照
+     */
+    public static Runnable runnable(Runnable task, ContextSnapshot snapshot) {
+        return new ContextRunnable(task, Preconditions.checkNotNull(snapshot, "snapshot can't be null"));
+    }
+
+    public static <V> Callable<V> callable(Callable<V> task) {
+        if (task instanceof ContextCallable) {
+            return task;
+        }
+        return new ContextCallable<>(task, ThreadContext.capture());
+    }
+
+    /**
+     * 使用指定的快照作为任务执行期间的上下文
+     *
+     * @param task     任务
+     * @param snapshot 执行期间安装的上下文快照
+     */
+    public static <V> Callable<V> callable(Callable<V> task, ContextSnapshot snapshot) {
+        return new ContextCallable<>(task, Preconditions.checkNotNull(snapshot, "snapshot can't be null"));
+    }
+
+    public static <T> Supplier<T> supplier(Supplier<T> task) {
+        if (task instanceof ContextSupplier) {
+            return task;
+        }
+        return new ContextSupplier<>(task, ThreadContext.capture());
+    }
+
+    /**
+     * 使用指定的快照作为任务执行期间的上下文
+     *
+     * @param task     任务
+     * @param snapshot 执行期间安装的上下文快照
+     */
+    public static <T> Supplier<T> supplier(Supplier<T> task, ContextSnapshot snapshot) {
+        return new ContextSupplier<>(task, Preconditions.checkNotNull(snapshot, "snapshot can't be null"));
+    }
+
+    /**
+     * 取出被包装的原始任务, 用于按原始任务从等待队列中查找、移除
+     *
+     * @param task 任务
+     * @return 原始任务, 未被包装时返回task本身
+     */
+    public static Runnable unwrap(Runnable task) {
+        return task instanceof ContextRunnable ? ((ContextRunnable) task).task : task;
+    }
+
+    /**
+     * 任务被包装的时间, 一般即提交给线程池的时间, 线程池据此统计execute提交的任务的排队等待时间
+     *
+     * @param task 被{@link #runnable(Runnable)}包装过的任务
+     * @return 包装时的{@link System#nanoTime()}
+     * @throws IllegalArgumentException 任务没有被包装过
+     */
+    public static long wrappedAt(Runnable task) {
+        Preconditions.checkArgument(task instanceof ContextRunnable, "task is not wrapped by ContextPropagation: %s", task);
+        return ((ContextRunnable) task).wrappedAt;
+    }
+
+    private static final class ContextRunnable implements Runnable {
+
+        private final Runnable task;
+
+        private final ContextSnapshot snapshot;
+
+        private final long wrappedAt = System.nanoTime();
+
+        private ContextRunnable(Runnable task, ContextSnapshot snapshot) {
+            this.task = task;
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public void run() {
+            ContextSnapshot previous = ThreadContext.attach(snapshot);
+            try {
+                task.run();
+            } finally {
+                ThreadContext.attach(previous);
+            }
+        }
+    }
+
+    private static final class ContextCallable<V> implements Callable<V> {
+
+        private final Callable<V> task;
+
+        private final ContextSnapshot snapshot;
+
+        private ContextCallable(Callable<V> task, ContextSnapshot snapshot) {
+            this.task = task;
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public V call() throws Exception {
+            ContextSnapshot previous = ThreadContext.attach(snapshot);
+            try {
+                return task.call();
+            } finally {
+                ThreadContext.attach(previous);
+            }
+        }
+    }
+
+    private static final class ContextSupplier<T> implements Supplier<T> {
+
+        private final Supplier<T> task;
+
+        private final ContextSnapshot snapshot;
+
+        private ContextSupplier(Supplier<T> task, ContextSnapshot snapshot) {
+            this.task = task;
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public T get() {
+            ContextSnapshot previous = ThreadContext.attach(snapshot);
+            try {
+                return task.get();
+            } finally {
+                ThreadContext.attach(previous);
+            }
+        }
+    }
+}
@@ -0,0 +1,89 @@
+package com.mengcc.common.context;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 单个线程上下文的诊断采样结果
+ *
+ * @author zhouzq
+ * @date 2020/5/21
+ * @see ContextDiagnostics
+ */
+public final class ContextSample {
+
+    private final long threadId;
+
+    private final String threadName;
+
+    private final boolean threadAlive;
+
+    private final int entryCount;
+
+    private final int highWaterMark;
+
+    private final long millisSinceClear;
+
+    private final List<String> staleKeys;
+
+    ContextSample(long threadId, String threadName, boolean threadAlive, int entryCount, int highWaterMark,
+                  long millisSinceClear, List<String> staleKeys) {
+        this.threadId = threadId;
+        this.threadName = threadName;
+        this.threadAlive = threadAlive;
+        this.entryCount = entryCount;
+        this.highWaterMark = highWaterMark;
+        this.millisSinceClear = millisSinceClear;
+        this.staleKeys = Collections.unmodifiableList(staleKeys);
+    }
+
+    public long getThreadId() {
+        return threadId;
+    }
+
+    public String getThreadName() {
+        return threadName;
+    }
+
+    public boolean isThreadAlive() {
+        return threadAlive;
+    }
+
+    /**
+     * 当前变量个数
+     */
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * 开启诊断以来变量个数的最大值
+     */
+    public int getHighWaterMark() {
+        return highWaterMark;
+    }
+
+    /**
+     * 距上次调用{@link ThreadContext#close()}(或开始诊断)的毫秒数
+     */
+    public long getMillisSinceClear() {
+        return millisSinceClear;
+    }
+
+    /**
+     * 滞留变量的key
+     */
+    public List<String> getStaleKeys() {
+        return staleKeys;
+    }
+
+    @Override
+    public String toString() {
+        return "ContextSample{thread=" + threadName + '#' + threadId
+                + ", alive=" + threadAlive
+                + ", entryCount=" + entryCount
+                + ", highWaterMark=" + highWaterMark
+                + ", millisSinceClear=" + millisSinceClear
+                + ", staleKeys=" + staleKeys + '}';
+    }
+}
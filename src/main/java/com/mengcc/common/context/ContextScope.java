@@ -0,0 +1,55 @@
+package com.mengcc.common.context;
+
+/**
+ * {@link ThreadContext}的作用域, 打开时记录当前上下文, 关闭时整体恢复, 作用域内的修改(包括删除)都会被撤销.
+ *
+ * <pre>
+ * try (ContextScope scope = ThreadContext.openScope(TENANT_ID, "internal")) {
+ *     // 临时覆盖租户id, 可以嵌套
+ * }
+ * // 恢复为原来的租户id
+ * </pre>
+ *
+ * 记录和恢复都是替换一个快照引用, 与变量数量无关. 作用域只能在打开它的线程上关闭.
+ *
+ * @author zhouzq
+ * @date 2020/5/20
+ */
+public final class ContextScope implements AutoCloseable {
+
+    private final Thread owner;
+
+    private final ContextSnapshot previous;
+
+    private boolean closed;
+
+    ContextScope(ContextSnapshot previous) {
+        this.owner = Thread.currentThread();
+        this.previous = previous;
+    }
+
+    /**
+     * 打开作用域前的上下文
+     */
+    public ContextSnapshot getPrevious() {
+        return previous;
+    }
+
+    /**
+     * 恢复打开作用域前的上下文, 重复关闭无效
+     *
+     * @throws IllegalStateException 不在打开作用域的线程上关闭时抛出
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        if (Thread.currentThread() != owner) {
+            throw new IllegalStateException("ContextScope opened by thread [" + owner.getName()
+                    + "] can't be closed by thread [" + Thread.currentThread().getName() + "]");
+        }
+        closed = true;
+        ThreadContext.attach(previous);
+    }
+}
@@ -0,0 +1,227 @@
+package com.mengcc.common.context;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * {@link ThreadContext}的不可变快照, 由{@link ThreadContext#capture()}取得, 通过{@link ThreadContext#attach(ContextSnapshot)}安装到其他线程.
+ *
+ * <pre>
+ * 变量按{@link ContextKey}的槽位分块存放, 每块16个槽位:
+ *
+ * chunks ─┬─ [0..15]
+ *         ├─ [16..31]
+ *         └─ null (该块没有变量)
+ *
+ * 没有声明为{@link ContextKey}的字符串key存放在单独的不可变Map中, 每次修改复制整个Map.
+ *
+ * 快照不可变, 可以同时交给任意多个任务. {@link #with(ContextKey, Object)}产生新版本时只复制顶层数组和变量所在的一块,
+ * 其余块与原快照共享, 例如并行拆分任务时给每个子任务附加各自的分片号:
+ *
+ * ContextSnapshot base = ThreadContext.capture();
+ * for (int i = 0; i &lt; shards; i++) {
+ *     executor.execute(ContextPropagation.runnable(task, base.with(SHARD, i)));
+ * }
+ * </pre>
+ *
+ * @author zhouzq
+ * @date 2020/5/18
+ */
+public final class ContextSnapshot {
+
+    static final int CHUNK_SHIFT = 4;
+
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+
+    static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    /**
+     * 空上下文的快照
+     */
+    static final ContextSnapshot EMPTY = new ContextSnapshot(new Object[0][], Collections.emptyMap());
+
+    /**
+     * 按{@link ContextKey}槽位分块存放的变量值, 创建后不再修改, 可能与其他快照或线程共享部分块
+     */
+    final Object[][] chunks;
+
+    /**
+     * 字符串API写入的、没有声明为{@link ContextKey}的变量, 创建后不再修改, 可能与其他快照或线程共享
+     */
+    final Map<String, Object> named;
+
+    ContextSnapshot(Object[][] chunks, Map<String, Object> named) {
+        this.chunks = chunks;
+        this.named = named;
+    }
+
+    /**
+     * 空快照
+     */
+    public static ContextSnapshot empty() {
+        return EMPTY;
+    }
+
+    /**
+     * 快照中的变量值
+     *
+     * @param key 变量的key
+     * @param <T> 变量值的具体类型
+     * @return 若无此key对应的变量值, 则返回{@code null}
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(ContextKey<T> key) {
+        return (T) valueOf(chunks, named, key);
+    }
+
+    /**
+     * 快照中的变量值
+     *
+     * @param key 变量的key
+     * @param <T> 变量值的具体类型
+     * @return 若无此key对应的变量值, 则返回{@code null}
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String key) {
+        ContextKey<?> contextKey = ContextKey.find(key);
+        return contextKey == null ? (T) named.get(key) : (T) get(contextKey);
+    }
+
+    /**
+     * 在本快照的基础上设置一个变量, 本快照不变
+     *
+     * @param key   变量的key
+     * @param value 变量值, 为{@code null}时删除该变量
+     * @return 新的快照, 值没有变化时返回本快照
+     */
+    public <T> ContextSnapshot with(ContextKey<T> key, T value) {
+        int slot = key.slot;
+        Object inSlot = valueAt(chunks, slot);
+        if (valueOf(chunks, named, key) == value) {
+            return this;
+        }
+        // 声明之前通过字符串API写入的同名变量, 移到槽位中
+        Map<String, Object> nextNamed = inSlot == null && named.containsKey(key.getName())
+                ? without(named, key.getName()) : named;
+        if (inSlot == null && value == null) {
+            return new ContextSnapshot(chunks, nextNamed);
+        }
+        int index = slot >>> CHUNK_SHIFT;
+        Object[][] copy = Arrays.copyOf(chunks, Math.max(chunks.length, index + 1));
+        Object[] chunk = copy[index];
+        chunk = chunk == null ? new Object[CHUNK_SIZE] : chunk.clone();
+        chunk[slot & CHUNK_MASK] = value;
+        copy[index] = chunk;
+        return new ContextSnapshot(copy, nextNamed);
+    }
+
+    /**
+     * 在本快照的基础上设置一个变量, 本快照不变
+     *
+     * @param key   变量的key
+     * @param value 变量值, 为{@code null}时删除该变量
+     * @return 新的快照, 值没有变化时返回本快照
+     * @throws ClassCastException 同名的{@link ContextKey}已声明类型, 而值不是该类型
+     */
+    @SuppressWarnings("unchecked")
+    public ContextSnapshot with(String key, Object value) {
+        ContextKey<Object> contextKey = (ContextKey<Object>) ContextKey.find(key);
+        if (contextKey != null) {
+            return with(contextKey, contextKey.checkValue(value));
+        }
+        if (named.get(key) == value) {
+            return this;
+        }
+        return new ContextSnapshot(chunks, value == null ? without(named, key) : with(named, key, value));
+    }
+
+    /**
+     * 在本快照的基础上删除一个变量, 本快照不变
+     *
+     * @param key 变量的key
+     * @return 新的快照
+     */
+    public ContextSnapshot without(ContextKey<?> key) {
+        return with(key, null);
+    }
+
+    public boolean isEmpty() {
+        for (Object[] chunk : chunks) {
+            if (chunk != null) {
+                for (Object value : chunk) {
+                    if (value != null) {
+                        return false;
+                    }
+                }
+            }
+        }
+        return named.isEmpty();
+    }
+
+    /**
+     * 转换为key名称到变量值的Map, 用于日志和调试
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        for (int i = 0; i < chunks.length; i++) {
+            Object[] chunk = chunks[i];
+            if (chunk == null) {
+                continue;
+            }
+            for (int j = 0; j < CHUNK_SIZE; j++) {
+                if (chunk[j] != null) {
+                    map.put(ContextKey.ofSlot((i << CHUNK_SHIFT) | j).getName(), chunk[j]);
+                }
+            }
+        }
+        for (Map.Entry<String, Object> entry : named.entrySet()) {
+            map.putIfAbsent(entry.getKey(), entry.getValue());
+        }
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return "ContextSnapshot" + toMap();
+    }
+
+    static Object valueAt(Object[][] chunks, int slot) {
+        int index = slot >>> CHUNK_SHIFT;
+        if (index < chunks.length) {
+            Object[] chunk = chunks[index];
+            if (chunk != null) {
+                return chunk[slot & CHUNK_MASK];
+            }
+        }
+        return null;
+    }
+
+    /**
+     * key的变量值, 槽位中没有时再查找声明之前通过字符串API写入的同名变量
+     */
+    static Object valueOf(Object[][] chunks, Map<String, Object> named, ContextKey<?> key) {
+        Object value = valueAt(chunks, key.slot);
+        if (value == null && !named.isEmpty()) {
+            value = named.get(key.getName());
+        }
+        return value;
+    }
+
+    static Map<String, Object> with(Map<String, Object> named, String key, Object value) {
+        Map<String, Object> copy = new HashMap<>(named);
+        copy.put(key, value);
+        return Collections.unmodifiableMap(copy);
+    }
+
+    static Map<String, Object> without(Map<String, Object> named, String key) {
+        if (named.size() == 1 && named.containsKey(key)) {
+            return Collections.emptyMap();
+        }
+        Map<String, Object> copy = new HashMap<>(named);
+        copy.remove(key);
+        return Collections.unmodifiableMap(copy);
+    }
+}
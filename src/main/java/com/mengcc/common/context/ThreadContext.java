@@ -3,11 +3,21 @@ package com.mengcc.common.context;
 
 import lombok.extern.slf4j.Slf4j;
 
-import java.util.HashMap;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 基于ThreadLocal的线程相关上下文帮助类, 用于在同一线程下传递变量.
+ * <p>
+ * 变量按{@link ContextKey}的槽位存放在每个线程的数组中, 推荐使用{@link ContextKey}常量读写. 字符串key已声明为同名的{@link ContextKey}时读写同一个槽位,
+ * 没有声明过的字符串key存放在每个线程自己的Map中, 不占用槽位.
+ * <p>
+ * 通过{@link #capture()}可以以O(1)的代价取得当前上下文的不可变快照, 交给其他线程执行的任务通过{@link ContextPropagation}包装后,
+ * 执行期间即可读取到提交线程的上下文. 快照与原线程共享存储, 原线程在快照之后写入时只复制被修改的一块(写时复制).
  *
  * @author zhouzq
  * @date 2017-12-18
@@ -16,11 +26,11 @@ import java.util.Map;
 public class ThreadContext {
 
 
-    private static ThreadLocal<Map<String, Object>> threadLocalMap = ThreadLocal.withInitial(() -> {
+    private static ThreadLocal<Holder> threadLocalContext = ThreadLocal.withInitial(() -> {
         if (log.isDebugEnabled()) {
             log.debug(">> initializing ThreaedLocalMap for thread [{}]", Thread.currentThread().getName());
         }
-        return new HashMap<>();
+        return new Holder();
     });
 
     /**
@@ -30,6 +40,32 @@ public class ThreadContext {
     }
 
 
+    /**
+     * 根据指定的key获取当前线程相关的变量值
+     *
+     * @param key 变量的key
+     * @param <T> 变量值的具体类型
+     * @return 若无此key对应的变量值, 则返回{@code null}
+     */
+    @SuppressWarnings("unchecked")
+    public static <T> T get(ContextKey<T> key) {
+        Holder holder = threadLocalContext.get();
+        return (T) ContextSnapshot.valueOf(holder.chunks, holder.named, key);
+    }
+
+    /**
+     * 根据指定的key获取当前线程相关的变量值, 若为{@code null}则返回指定的默认值
+     *
+     * @param key          变量的key
+     * @param defaultValue 默认值
+     * @param <T>          变量值的具体类型
+     * @return 若无此key对应的变量值, 则返回defaultValue
+     */
+    public static <T> T get(ContextKey<T> key, T defaultValue) {
+        T value = get(key);
+        return value == null ? defaultValue : value;
+    }
+
     /**
      * 根据指定的key获取当前线程相关的变量值
      *
@@ -40,7 +76,8 @@ public class ThreadContext {
      */
     @SuppressWarnings("unchecked")
     public static <T> T get(String key) {
-        return (T) threadLocalMap.get().get(key);
+        ContextKey<?> contextKey = ContextKey.find(key);
+        return contextKey == null ? (T) threadLocalContext.get().named.get(key) : (T) get(contextKey);
     }
 
     /**
@@ -62,10 +99,55 @@ public class ThreadContext {
      * 设置线程相关上下文的变量值
      *
      * @param key   变量的key
-     * @param value 变量值
+     * @param value 变量值, 为{@code null}时等同于{@link #remove(ContextKey)}
+     */
+    public static <T> void set(ContextKey<T> key, T value) {
+        Holder holder = threadLocalContext.get();
+        int slot = key.slot;
+        Object inSlot = ContextSnapshot.valueAt(holder.chunks, slot);
+        Object old = inSlot;
+        if (old == null && !holder.named.isEmpty()) {
+            old = holder.named.get(key.getName());
+        }
+        if (old == value) {
+            return;
+        }
+        if (inSlot == null && old != null) {
+            // 声明之前通过字符串API写入的同名变量, 移到槽位中
+            holder.removeNamed(key.getName());
+        }
+        if (inSlot != null || value != null) {
+            holder.writableChunk(slot)[slot & ContextSnapshot.CHUNK_MASK] = value;
+        }
+        if (ContextDiagnostics.enabled) {
+            holder.onSet(slot, old != null, value != null);
+        }
+    }
+
+    /**
+     * 设置线程相关上下文的变量值
+     *
+     * @param key   变量的key
+     * @param value 变量值, 为{@code null}时等同于{@link #remove(String)}
+     * @throws ClassCastException 同名的{@link ContextKey}已声明类型, 而值不是该类型
      */
+    @SuppressWarnings("unchecked")
     public static void set(String key, Object value) {
-        threadLocalMap.get().put(key, value);
+        ContextKey<Object> contextKey = (ContextKey<Object>) ContextKey.find(key);
+        if (contextKey != null) {
+            set(contextKey, contextKey.checkValue(value));
+        } else {
+            threadLocalContext.get().setNamed(key, value);
+        }
+    }
+
+    /**
+     * 删除指定key的变量
+     *
+     * @param key 变量的key
+     */
+    public static void remove(ContextKey<?> key) {
+        set(key, null);
     }
 
     /**
@@ -74,16 +156,391 @@ public class ThreadContext {
      * @param key 变量的key
      */
     public static void remove(String key) {
-        threadLocalMap.get().remove(key);
+        ContextKey<?> contextKey = ContextKey.find(key);
+        if (contextKey != null) {
+            remove(contextKey);
+        } else {
+            threadLocalContext.get().setNamed(key, null);
+        }
     }
 
     /**
-     * 清除当前线程相关的上下文
+     * 清除当前线程相关的上下文, 只清空存储, 线程池中的线程下次使用时复用原有的存储, 不会重新创建
      */
     public static void close() {
         if (log.isDebugEnabled()) {
-            log.debug(">> removing ThreaedLocalMap for thread [{}]", Thread.currentThread().getName());
+            log.debug(">> clearing ThreaedLocalMap for thread [{}]", Thread.currentThread().getName());
+        }
+        Holder holder = threadLocalContext.get();
+        holder.clearValues();
+        if (ContextDiagnostics.enabled) {
+            holder.onClear();
+        }
+    }
+
+    /**
+     * 打开一个作用域, 关闭时恢复为打开前的上下文
+     *
+     * @return 作用域, 应在try-with-resources中使用
+     */
+    public static ContextScope openScope() {
+        return new ContextScope(capture());
+    }
+
+    /**
+     * 打开一个作用域并设置变量, 关闭时恢复为打开前的上下文
+     *
+     * @param key   变量的key
+     * @param value 作用域内的变量值
+     * @return 作用域, 应在try-with-resources中使用
+     */
+    public static <T> ContextScope openScope(ContextKey<T> key, T value) {
+        ContextScope scope = openScope();
+        set(key, value);
+        return scope;
+    }
+
+    /**
+     * 打开一个作用域并设置变量, 关闭时恢复为打开前的上下文
+     *
+     * @param key   变量的key
+     * @param value 作用域内的变量值
+     * @return 作用域, 应在try-with-resources中使用
+     * @throws ClassCastException 同名的{@link ContextKey}已声明类型, 而值不是该类型
+     */
+    public static ContextScope openScope(String key, Object value) {
+        ContextKey<?> contextKey = ContextKey.find(key);
+        if (contextKey != null) {
+            contextKey.checkValue(value);
+        }
+        ContextScope scope = openScope();
+        set(key, value);
+        return scope;
+    }
+
+    /**
+     * 打开一个作用域并安装快照, 关闭时恢复为打开前的上下文
+     *
+     * @param snapshot 作用域内的上下文
+     * @return 作用域, 应在try-with-resources中使用
+     */
+    public static ContextScope openScope(ContextSnapshot snapshot) {
+        return new ContextScope(attach(snapshot));
+    }
+
+    /**
+     * 取得当前线程上下文的快照, 不复制任何数据, 多次调用之间没有修改时返回同一个快照
+     *
+     * @return 上下文快照, 之后当前线程对上下文的修改不会反映到快照中
+     */
+    public static ContextSnapshot capture() {
+        return threadLocalContext.get().capture();
+    }
+
+    /**
+     * 把快照安装为当前线程的上下文, 执行完成后应使用返回值再次调用本方法恢复
+     *
+     * <pre>
+     * ContextSnapshot previous = ThreadContext.attach(snapshot);
+     * try {
+     *     ...
+     * } finally {
+     *     ThreadContext.attach(previous);
+     * }
+     * </pre>
+     *
+     * 安装和恢复都只替换引用, 不复制数据.
+     *
+     * @param snapshot 上下文快照
+     * @return 安装前当前线程的上下文
+     */
+    public static ContextSnapshot attach(ContextSnapshot snapshot) {
+        Holder holder = threadLocalContext.get();
+        ContextSnapshot previous = holder.capture();
+        holder.chunks = snapshot.chunks;
+        holder.named = snapshot.named;
+        holder.snapshot = snapshot;
+        if (ContextDiagnostics.enabled) {
+            holder.onAttach();
+        }
+        return previous;
+    }
+
+    /**
+     * 线程持有的上下文, 与{@link ContextSnapshot}采用相同的分块结构.
+     * snapshot不为空时顶层数组和全部块都已被快照共享; owned[i]为true的块只属于当前线程, 可以原地修改.
+     * 没有声明过的字符串key存放在不可变的named中, 每次修改替换整个Map, 总是可以与快照共享.
+     * <p>
+     * 弱引用所属线程, 开启{@link ContextDiagnostics}后登记到诊断注册表, 线程结束后自动移除.
+     */
+    static final class Holder extends WeakReference<Thread> {
+
+        private static final boolean[] NONE = new boolean[0];
+
+        private Object[][] chunks = ContextSnapshot.EMPTY.chunks;
+
+        private boolean[] owned = NONE;
+
+        private Map<String, Object> named = ContextSnapshot.EMPTY.named;
+
+        private ContextSnapshot snapshot = ContextSnapshot.EMPTY;
+
+        private final long threadId;
+
+        private final String threadName;
+
+        /*
+         * 以下为诊断数据, 只在开启诊断后由所属线程维护, 采样线程允许读到稍旧的值
+         */
+
+        /**
+         * 登记时的诊断代数, 与{@link ContextDiagnostics}当前代数不同时需要重新登记
+         */
+        private int generation;
+
+        private int entryCount;
+
+        private int highWaterMark;
+
+        /**
+         * 各槽位变量的设置时间(纳秒), 0表示未知
+         */
+        private long[] setAt;
+
+        /**
+         * 没有声明过的字符串key的设置时间(纳秒), 采样线程会并发读取
+         */
+        private Map<String, Long> namedSetAt;
+
+        /**
+         * 上次清空上下文或开始诊断的时间(纳秒)
+         */
+        private long clearedAt;
+
+        private Holder() {
+            super(Thread.currentThread(), ContextDiagnostics.DEAD_THREADS);
+            this.threadId = Thread.currentThread().getId();
+            this.threadName = Thread.currentThread().getName();
+        }
+
+        private ContextSnapshot capture() {
+            if (snapshot == null) {
+                snapshot = new ContextSnapshot(chunks, named);
+            }
+            return snapshot;
+        }
+
+        /**
+         * 返回slot所在的可以直接写入的块, 共享的部分先复制: 顶层数组加一块, 其余块继续共享
+         */
+        private Object[] writableChunk(int slot) {
+            int index = slot >>> ContextSnapshot.CHUNK_SHIFT;
+            if (snapshot != null || index >= chunks.length) {
+                int length = Math.max(chunks.length, index + 1);
+                chunks = Arrays.copyOf(chunks, length);
+                owned = snapshot != null ? new boolean[length] : Arrays.copyOf(owned, length);
+                snapshot = null;
+            }
+            Object[] chunk = chunks[index];
+            if (!owned[index]) {
+                chunk = chunk == null ? new Object[ContextSnapshot.CHUNK_SIZE] : chunk.clone();
+                chunks[index] = chunk;
+                owned[index] = true;
+            }
+            return chunk;
+        }
+
+        /**
+         * 设置没有声明过的字符串key, 值为null时删除
+         */
+        private void setNamed(String key, Object value) {
+            Object old = named.get(key);
+            if (old == value) {
+                return;
+            }
+            detach();
+            named = value == null ? ContextSnapshot.without(named, key) : ContextSnapshot.with(named, key, value);
+            if (ContextDiagnostics.enabled) {
+                onSetNamed(key, old != null, value != null);
+            }
+        }
+
+        /**
+         * 删除声明之前通过字符串API写入的变量, 由调用方写入槽位并统计
+         */
+        private void removeNamed(String key) {
+            detach();
+            named = ContextSnapshot.without(named, key);
+            if (namedSetAt != null) {
+                namedSetAt.remove(key);
+            }
+        }
+
+        /**
+         * 与快照脱离共享: 复制顶层数组, 全部块改为共享状态, 之后的写入不会影响快照
+         */
+        private void detach() {
+            if (snapshot != null) {
+                chunks = Arrays.copyOf(chunks, chunks.length);
+                owned = new boolean[chunks.length];
+                snapshot = null;
+            }
+        }
+
+        /**
+         * 原地清空: 当前线程独占的块保留复用, 与快照共享的部分直接丢弃
+         */
+        private void clearValues() {
+            named = ContextSnapshot.EMPTY.named;
+            if (snapshot != null) {
+                chunks = ContextSnapshot.EMPTY.chunks;
+                owned = NONE;
+                snapshot = ContextSnapshot.EMPTY;
+                return;
+            }
+            for (int i = 0; i < chunks.length; i++) {
+                if (owned[i]) {
+                    Arrays.fill(chunks[i], null);
+                } else {
+                    chunks[i] = null;
+                }
+            }
+        }
+
+        /**
+         * 开启诊断后首次使用时登记, 以当前内容为起点统计
+         *
+         * @return 本次是否刚刚登记
+         */
+        private boolean track() {
+            int current = ContextDiagnostics.generation;
+            if (generation != current) {
+                generation = current;
+                entryCount = countEntries(chunks) + named.size();
+                highWaterMark = entryCount;
+                setAt = new long[ContextKey.slotCount()];
+                namedSetAt = new ConcurrentHashMap<>();
+                clearedAt = System.nanoTime();
+                ContextDiagnostics.register(this);
+                return true;
+            }
+            return false;
+        }
+
+        private void onSet(int slot, boolean had, boolean has) {
+            if (!track() && had != has) {
+                entryCount += has ? 1 : -1;
+                highWaterMark = Math.max(highWaterMark, entryCount);
+            }
+            if (slot >= setAt.length) {
+                setAt = Arrays.copyOf(setAt, Math.max(slot + 1, ContextKey.slotCount()));
+            }
+            setAt[slot] = has ? System.nanoTime() : 0L;
+        }
+
+        private void onSetNamed(String key, boolean had, boolean has) {
+            if (!track() && had != has) {
+                entryCount += has ? 1 : -1;
+                highWaterMark = Math.max(highWaterMark, entryCount);
+            }
+            if (has) {
+                namedSetAt.put(key, System.nanoTime());
+            } else {
+                namedSetAt.remove(key);
+            }
+        }
+
+        /**
+         * 安装快照相当于整体替换上下文, 安装进来的变量都从现在开始计时, 否则线程池线程空闲期间的时间会被误算为滞留
+         */
+        private void onAttach() {
+            track();
+            if (setAt.length < ContextKey.slotCount()) {
+                setAt = new long[ContextKey.slotCount()];
+            }
+            Arrays.fill(setAt, 0L);
+            namedSetAt.clear();
+            long now = System.nanoTime();
+            int count = named.size();
+            for (String key : named.keySet()) {
+                namedSetAt.put(key, now);
+            }
+            for (int i = 0; i < chunks.length; i++) {
+                Object[] chunk = chunks[i];
+                if (chunk == null) {
+                    continue;
+                }
+                for (int j = 0; j < ContextSnapshot.CHUNK_SIZE; j++) {
+                    if (chunk[j] != null) {
+                        setAt[(i << ContextSnapshot.CHUNK_SHIFT) | j] = now;
+                        count++;
+                    }
+                }
+            }
+            entryCount = count;
+            highWaterMark = Math.max(highWaterMark, entryCount);
+        }
+
+        private void onClear() {
+            track();
+            entryCount = 0;
+            Arrays.fill(setAt, 0L);
+            namedSetAt.clear();
+            clearedAt = System.nanoTime();
+        }
+
+        /**
+         * 采样, 设置时间(未知时取上次清空的时间)距今超过maxAgeNanos的变量视为滞留
+         */
+        ContextSample sample(long now, long maxAgeNanos) {
+            Thread thread = get();
+            Object[][] currentChunks = chunks;
+            Map<String, Object> currentNamed = named;
+            long[] currentSetAt = setAt;
+            Map<String, Long> currentNamedSetAt = namedSetAt;
+            long currentClearedAt = clearedAt;
+            List<String> staleKeys = new ArrayList<>();
+            for (int i = 0; i < currentChunks.length; i++) {
+                Object[] chunk = currentChunks[i];
+                if (chunk == null) {
+                    continue;
+                }
+                for (int j = 0; j < ContextSnapshot.CHUNK_SIZE; j++) {
+                    int slot = (i << ContextSnapshot.CHUNK_SHIFT) | j;
+                    if (chunk[j] == null) {
+                        continue;
+                    }
+                    long since = currentSetAt != null && slot < currentSetAt.length && currentSetAt[slot] != 0L
+                            ? currentSetAt[slot] : currentClearedAt;
+                    if (now - since > maxAgeNanos) {
+                        staleKeys.add(ContextKey.ofSlot(slot).getName());
+                    }
+                }
+            }
+            for (String key : currentNamed.keySet()) {
+                Long setTime = currentNamedSetAt == null ? null : currentNamedSetAt.get(key);
+                long since = setTime != null ? setTime : currentClearedAt;
+                if (now - since > maxAgeNanos) {
+                    staleKeys.add(key);
+                }
+            }
+            return new ContextSample(threadId, thread == null ? threadName : thread.getName(),
+                    thread != null && thread.isAlive(), countEntries(currentChunks) + currentNamed.size(), highWaterMark,
+                    (now - currentClearedAt) / 1000000L, staleKeys);
+        }
+
+        private static int countEntries(Object[][] chunks) {
+            int count = 0;
+            for (Object[] chunk : chunks) {
+                if (chunk != null) {
+                    for (Object value : chunk) {
+                        if (value != null) {
+                            count++;
+                        }
+                    }
+                }
+            }
+            return count;
         }
-        threadLocalMap.remove();
     }
 }
@@ -0,0 +1,138 @@
+package com.mengcc.common.idgen;
+
+import com.google.common.base.Preconditions;
+import com.mengcc.common.exceptions.FrameworkException;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 机器id分配器基类: 从随机位置开始依次尝试抢占机器id，抢占成功后按固定间隔心跳续约
+ *
+ * @author zhouzq
+ * @date 2020/4/30
+ */
+@Slf4j
+public abstract class AbstractWorkerIdAssigner implements WorkerIdAssigner {
+
+    /**
+     * 所有分配器共享的心跳线程
+     */
+    private static final ScheduledExecutorService HEARTBEAT_EXECUTOR = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "worker-id-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * 可分配的最大机器id
+     */
+    protected final long maxWorkerId;
+
+    /**
+     * 租约有效期(毫秒)，超过有效期未续约的机器id可以被其他实例抢占
+     */
+    protected final long leaseMillis;
+
+    protected AbstractWorkerIdAssigner(long maxWorkerId, long leaseMillis) {
+        Preconditions.checkArgument(maxWorkerId >= 0, "max worker Id can't be less than 0");
+        Preconditions.checkArgument(leaseMillis >= 3, "lease millis can't be less than 3");
+        this.maxWorkerId = maxWorkerId;
+        this.leaseMillis = leaseMillis;
+    }
+
+    @Override
+    public WorkerIdLease acquire() {
+        long total = maxWorkerId + 1;
+        // 从随机位置开始尝试，多个实例同时启动时减少互相冲突
+        long start = ThreadLocalRandom.current().nextLong(total);
+        for (long i = 0; i < total; i++) {
+            AbstractLease lease = tryClaim((start + i) % total);
+            if (lease != null) {
+                long period = leaseMillis / 3;
+                lease.heartbeat = HEARTBEAT_EXECUTOR.scheduleAtFixedRate(lease::heartbeat, period, period, TimeUnit.MILLISECONDS);
+                return lease;
+            }
+        }
+        throw new FrameworkException("没有空闲的机器id, 最大机器id: " + maxWorkerId);
+    }
+
+    /**
+     * 尝试抢占指定的机器id
+     *
+     * @param workerId 机器id
+     * @return 抢占成功返回租约，已被占用返回null
+     */
+    protected abstract AbstractLease tryClaim(long workerId);
+
+    /**
+     * 租约基类，子类实现续约和释放
+     */
+    protected abstract static class AbstractLease implements WorkerIdLease {
+
+        private final long workerId;
+
+        private volatile boolean valid = true;
+
+        private volatile ScheduledFuture<?> heartbeat;
+
+        protected AbstractLease(long workerId) {
+            this.workerId = workerId;
+        }
+
+        /**
+         * 续约
+         *
+         * @return 续约失败(租约已被他人抢占或存储不可用)返回false
+         */
+        protected abstract boolean renew();
+
+        /**
+         * 释放机器id
+         */
+        protected abstract void release();
+
+        @Override
+        public long getWorkerId() {
+            return workerId;
+        }
+
+        @Override
+        public boolean isValid() {
+            return valid;
+        }
+
+        @Override
+        public synchronized void close() {
+            if (heartbeat != null) {
+                heartbeat.cancel(false);
+            }
+            if (valid) {
+                valid = false;
+                release();
+            }
+        }
+
+        private synchronized void heartbeat() {
+            if (!valid) {
+                return;
+            }
+            boolean renewed;
+            try {
+                renewed = renew();
+            } catch (RuntimeException e) {
+                log.warn(">> renew lease of worker id [{}] failed", workerId, e);
+                renewed = false;
+            }
+            if (!renewed) {
+                log.error(">> lease of worker id [{}] is lost", workerId);
+                valid = false;
+                heartbeat.cancel(false);
+            }
+        }
+    }
+}
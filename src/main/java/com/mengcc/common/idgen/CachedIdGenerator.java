@@ -0,0 +1,256 @@
+package com.mengcc.common.idgen;
+
+import com.google.common.base.Preconditions;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 基于环形缓冲区预生成雪花算法ID的生成器，取号时只需一次CAS和一次数组读取。
+ *
+ * <pre>
+ * 1. 缓冲区大小为2的幂，由后台填充线程按毫秒整段写入ID(默认位结构下每毫秒4096个)；
+ * 2. 取号线程CAS推进独占缓存行的游标，读取对应槽位后将其标记为空，填充线程只会写入已被读空的槽位；
+ * 3. 剩余可用ID低于阈值(默认50%)时异步补充，缓冲区被取空时由取号线程同步补充，并记为一次饥饿；
+ * 4. 填充时使用的逻辑时间截只增不减：系统时间超过逻辑时间截时追上系统时间，否则继续借用未来的毫秒，
+ *    因此可以吸收超过每毫秒序列上限的突发流量，系统时钟回拨也不会产生重复ID。
+ *
+ * 注意: 持续借用未来毫秒时，逻辑时间截可能领先系统时间，若进程重启后立即以相同的机器id发号，
+ * 可能与重启前借用的时间段重复，建议重启时更换机器id或等待领先的时间过去。
+ * </pre>
+ *
+ * @author zhouzq
+ * @date 2020/4/28
+ */
+public class CachedIdGenerator implements IdGenerator, AutoCloseable {
+
+    /**
+     * 默认缓冲区大小
+     */
+    public static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+
+    /**
+     * 默认在剩余可用ID低于缓冲区50%时补充
+     */
+    public static final int DEFAULT_PADDING_PERCENT = 50;
+
+    /**
+     * 空槽位标记，雪花算法生成的ID总是非负数
+     */
+    private static final long EMPTY = -1L;
+
+    private final SnowflakeLayout layout;
+
+    private final long nodeBits;
+
+    private final MillisClock clock;
+
+    private final int bufferSize;
+
+    private final int indexMask;
+
+    private final AtomicLongArray slots;
+
+    /**
+     * 最后一个已写入的位置(单调递增，按indexMask取模得到槽位)
+     */
+    private final PaddedAtomicLong tail = new PaddedAtomicLong(-1L);
+
+    /**
+     * 最后一个已取出的位置
+     */
+    private final PaddedAtomicLong cursor = new PaddedAtomicLong(-1L);
+
+    /**
+     * 剩余可用ID低于该值时触发补充
+     */
+    private final int paddingThreshold;
+
+    private final AtomicBoolean padding = new AtomicBoolean();
+
+    private final ExecutorService paddingExecutor;
+
+    /**
+     * 运行指标，缓冲区取空记为exhaustionWaits
+     */
+    private final IdGeneratorMetrics metrics = new IdGeneratorMetrics();
+
+    private final LongAdder paddings = new LongAdder();
+
+    /**
+     * 下一个待填充的逻辑时间截和序列，仅在持有本对象锁时访问
+     */
+    private long nextTime;
+
+    private long nextSequence;
+
+    public CachedIdGenerator(long datacenterId, long workerId) {
+        this(SnowflakeLayout.DEFAULT, datacenterId, workerId, DEFAULT_BUFFER_SIZE, DEFAULT_PADDING_PERCENT, SystemMillisClock.INSTANCE);
+    }
+
+    /**
+     * @param layout         ID的位结构
+     * @param datacenterId   数据标识id
+     * @param workerId       机器id
+     * @param bufferSize     缓冲区大小，必须是2的幂
+     * @param paddingPercent 剩余可用ID低于缓冲区的百分之多少时补充，取值(0, 100)
+     * @param clock          毫秒时钟
+     */
+    public CachedIdGenerator(SnowflakeLayout layout, long datacenterId, long workerId,
+                             int bufferSize, int paddingPercent, MillisClock clock) {
+        Preconditions.checkArgument(bufferSize > 0 && Integer.bitCount(bufferSize) == 1, "buffer size must be a power of two");
+        Preconditions.checkArgument(paddingPercent > 0 && paddingPercent < 100, "padding percent must be in (0, 100)");
+        this.layout = Preconditions.checkNotNull(layout, "layout can't be null");
+        this.nodeBits = layout.nodeBits(datacenterId, workerId);
+        this.clock = Preconditions.checkNotNull(clock, "clock can't be null");
+        this.bufferSize = bufferSize;
+        this.indexMask = bufferSize - 1;
+        this.slots = new AtomicLongArray(bufferSize);
+        for (int i = 0; i < bufferSize; i++) {
+            slots.set(i, EMPTY);
+        }
+        this.paddingThreshold = (int) ((long) bufferSize * paddingPercent / 100);
+        this.paddingExecutor = Executors.newSingleThreadExecutor(r -> {
+            Thread thread = new Thread(r, "cached-id-padding");
+            thread.setDaemon(true);
+            return thread;
+        });
+        paddingBuffer();
+    }
+
+    @Override
+    public long generateId() {
+        boolean starved = false;
+        long starvedAt = 0L;
+        for (;;) {
+            long current = cursor.get();
+            if (current >= tail.get()) {
+                // 缓冲区已取空，同步补充后重试
+                if (!starved) {
+                    starved = true;
+                    starvedAt = System.nanoTime();
+                    metrics.exhaustionWaits.increment();
+                }
+                paddingBuffer();
+                continue;
+            }
+            if (cursor.compareAndSet(current, current + 1)) {
+                long id = slots.getAndSet((int) ((current + 1) & indexMask), EMPTY);
+                if (tail.get() - (current + 1) < paddingThreshold) {
+                    asyncPadding();
+                }
+                metrics.issued.increment();
+                if (starved) {
+                    metrics.waitNanos.add(System.nanoTime() - starvedAt);
+                }
+                return id;
+            }
+            metrics.contentionRetries.increment();
+        }
+    }
+
+    /**
+     * 当前缓冲区中可直接取出的ID数量
+     */
+    public long getFillLevel() {
+        return Math.max(0L, tail.get() - cursor.get());
+    }
+
+    public int getBufferSize() {
+        return bufferSize;
+    }
+
+    /**
+     * 取号时缓冲区为空、只能同步补充的次数
+     */
+    public long getStarvationCount() {
+        return metrics.exhaustionWaits.sum();
+    }
+
+    /**
+     * 执行补充的次数
+     */
+    public long getPaddingCount() {
+        return paddings.sum();
+    }
+
+    @Override
+    public IdGeneratorMetrics.Snapshot metricsSnapshot() {
+        return metrics.snapshot();
+    }
+
+    /**
+     * 停止后台填充线程，缓冲区取空后由取号线程同步补充
+     */
+    @Override
+    public void close() {
+        paddingExecutor.shutdownNow();
+    }
+
+    private void asyncPadding() {
+        if (padding.compareAndSet(false, true)) {
+            try {
+                paddingExecutor.execute(() -> {
+                    try {
+                        paddingBuffer();
+                    } finally {
+                        padding.set(false);
+                    }
+                });
+            } catch (RuntimeException e) {
+                // 已关闭，交由取号线程同步补充
+                padding.set(false);
+            }
+        }
+    }
+
+    /**
+     * 按逻辑时间截逐毫秒写入ID，直到缓冲区写满
+     */
+    private synchronized void paddingBuffer() {
+        paddings.increment();
+        long currentMillis = clock.currentMillis();
+        if (nextTime < currentMillis) {
+            // 系统时间已超过逻辑时间截，追上系统时间
+            layout.checkTimestamp(currentMillis);
+            nextTime = currentMillis;
+            nextSequence = 0L;
+        }
+        long sequenceMask = layout.getSequenceMask();
+        for (;;) {
+            if (nextSequence > sequenceMask) {
+                // 当前毫秒已写满，借用下一个毫秒
+                layout.checkTimestamp(nextTime + 1);
+                nextTime++;
+                nextSequence = 0L;
+            }
+            if (!put(layout.compose(nextTime, nodeBits, nextSequence))) {
+                return;
+            }
+            nextSequence++;
+        }
+    }
+
+    /**
+     * 写入一个ID，仅由持有本对象锁的填充线程调用
+     *
+     * @return 缓冲区已满或目标槽位尚未被读空时返回false
+     */
+    private boolean put(long id) {
+        long currentTail = tail.get();
+        if (currentTail - cursor.get() >= bufferSize) {
+            return false;
+        }
+        int index = (int) ((currentTail + 1) & indexMask);
+        if (slots.get(index) != EMPTY) {
+            // 取号线程已推进游标但还未读出该槽位
+            return false;
+        }
+        slots.set(index, id);
+        tail.set(currentTail + 1);
+        return true;
+    }
+}
@@ -0,0 +1,49 @@
+package com.mengcc.common.idgen;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 时钟回拨处理次数统计，按回拨事件计数: 读取到的系统时钟比上一次读取的更早时计一次，
+ * 时钟追上之前的后续调用(包括等待后的重试、借用和备用机器id发号)不重复计数
+ *
+ * @author zhouzq
+ * @date 2020/4/20
+ */
+public final class ClockBackwardsCounters {
+
+    final LongAdder waits = new LongAdder();
+
+    final LongAdder borrows = new LongAdder();
+
+    final LongAdder failovers = new LongAdder();
+
+    final LongAdder failures = new LongAdder();
+
+    /**
+     * 按等待策略处理的回拨次数
+     */
+    public long getWaits() {
+        return waits.sum();
+    }
+
+    /**
+     * 按借用策略处理的回拨次数
+     */
+    public long getBorrows() {
+        return borrows.sum();
+    }
+
+    /**
+     * 切换到备用机器id发号的回拨次数
+     */
+    public long getFailovers() {
+        return failovers.sum();
+    }
+
+    /**
+     * 超出容忍范围而抛出异常的回拨次数
+     */
+    public long getFailures() {
+        return failures.sum();
+    }
+}
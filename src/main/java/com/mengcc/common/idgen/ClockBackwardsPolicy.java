@@ -0,0 +1,107 @@
+package com.mengcc.common.idgen;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * 系统时钟回拨时ID生成器的处理策略
+ *
+ * <pre>
+ * FAIL          直接抛出异常(默认行为)
+ * WAIT          回拨不超过容忍时长时，等待时钟追上上次生成ID的时间截，超过则抛出异常
+ * BORROW        继续沿用上次的逻辑时间截发号，序列用尽后借用未来的毫秒，借用不超过容忍时长
+ * BACKUP_WORKER 切换到预留的备用机器id，以回拨后的时间继续发号
+ * </pre>
+ *
+ * @author zhouzq
+ * @date 2020/4/20
+ */
+public final class ClockBackwardsPolicy {
+
+    public enum Strategy {
+        /**
+         * 抛出异常
+         */
+        FAIL,
+        /**
+         * 有限等待
+         */
+        WAIT,
+        /**
+         * 借用未来的毫秒
+         */
+        BORROW,
+        /**
+         * 切换备用机器id
+         */
+        BACKUP_WORKER
+    }
+
+    private static final ClockBackwardsPolicy FAIL = new ClockBackwardsPolicy(Strategy.FAIL, 0L, -1L);
+
+    private final Strategy strategy;
+
+    /**
+     * WAIT/BORROW策略可容忍的最大毫秒数
+     */
+    private final long toleranceMillis;
+
+    /**
+     * BACKUP_WORKER策略使用的备用机器id
+     */
+    private final long backupWorkerId;
+
+    private ClockBackwardsPolicy(Strategy strategy, long toleranceMillis, long backupWorkerId) {
+        this.strategy = strategy;
+        this.toleranceMillis = toleranceMillis;
+        this.backupWorkerId = backupWorkerId;
+    }
+
+    /**
+     * 时钟回拨时抛出异常
+     */
+    public static ClockBackwardsPolicy fail() {
+        return FAIL;
+    }
+
+    /**
+     * 时钟回拨不超过maxWaitMillis时等待时钟追上
+     *
+     * @param maxWaitMillis 最长等待的毫秒数
+     */
+    public static ClockBackwardsPolicy waitAtMost(long maxWaitMillis) {
+        Preconditions.checkArgument(maxWaitMillis >= 0, "maxWaitMillis can't be less than 0");
+        return new ClockBackwardsPolicy(Strategy.WAIT, maxWaitMillis, -1L);
+    }
+
+    /**
+     * 时钟回拨时沿用上次的逻辑时间截，最多领先系统时钟maxBorrowMillis
+     *
+     * @param maxBorrowMillis 最多借用的毫秒数
+     */
+    public static ClockBackwardsPolicy borrowAtMost(long maxBorrowMillis) {
+        Preconditions.checkArgument(maxBorrowMillis >= 0, "maxBorrowMillis can't be less than 0");
+        return new ClockBackwardsPolicy(Strategy.BORROW, maxBorrowMillis, -1L);
+    }
+
+    /**
+     * 时钟回拨时切换到备用机器id发号，备用机器id必须预留给本节点，不能分配给其他节点
+     *
+     * @param backupWorkerId 备用机器id
+     */
+    public static ClockBackwardsPolicy backupWorker(long backupWorkerId) {
+        Preconditions.checkArgument(backupWorkerId >= 0, "backup worker Id can't be less than 0");
+        return new ClockBackwardsPolicy(Strategy.BACKUP_WORKER, 0L, backupWorkerId);
+    }
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    public long getToleranceMillis() {
+        return toleranceMillis;
+    }
+
+    public long getBackupWorkerId() {
+        return backupWorkerId;
+    }
+}
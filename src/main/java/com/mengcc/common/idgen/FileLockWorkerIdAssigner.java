@@ -0,0 +1,145 @@
+package com.mengcc.common.idgen;
+
+import com.google.common.base.Preconditions;
+import com.mengcc.common.exceptions.FrameworkException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * 基于文件锁的机器id分配器，目录下每个机器id对应一个锁文件。
+ *
+ * <pre>
+ * 抢占: 对锁文件加排他锁成功，且文件中记录的心跳时间已超过租约有效期(或从未写入)；
+ * 续约: 持锁期间定期把当前时间写入锁文件；
+ * 释放: 清空心跳时间并释放文件锁，进程异常退出时操作系统也会释放文件锁。
+ *
+ * 互斥完全依赖文件锁: 同一台机器上的多个进程共享本地目录即可互斥；多台机器共享网络目录时，
+ * 网络文件系统必须正确支持跨主机的文件锁(如NFSv4)。文件锁不生效时，读取心跳再写入不是原子操作，
+ * 各主机的时钟也不一致，两个实例可能同时判断心跳已过期而抢占到同一个机器id，此时应改用基于数据库或注册中心的分配器。
+ * 心跳时间只起辅助作用: 持有者异常退出后，其机器id在租约有效期内不会被立即复用。
+ * </pre>
+ *
+ * @author zhouzq
+ * @date 2020/4/30
+ */
+public class FileLockWorkerIdAssigner extends AbstractWorkerIdAssigner {
+
+    private final Path directory;
+
+    public FileLockWorkerIdAssigner(Path directory, long maxWorkerId) {
+        this(directory, maxWorkerId, 30_000L);
+    }
+
+    public FileLockWorkerIdAssigner(Path directory, long maxWorkerId, long leaseMillis) {
+        super(maxWorkerId, leaseMillis);
+        this.directory = Preconditions.checkNotNull(directory, "directory can't be null");
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new FrameworkException("创建机器id目录失败: " + directory, e);
+        }
+    }
+
+    @Override
+    protected AbstractLease tryClaim(long workerId) {
+        Path file = directory.resolve("worker-" + workerId + ".lock");
+        FileChannel channel = null;
+        boolean claimed = false;
+        try {
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            FileLock lock = channel.tryLock();
+            if (lock != null) {
+                long now = System.currentTimeMillis();
+                long lastHeartbeat = readHeartbeat(channel);
+                if (lastHeartbeat + leaseMillis < now) {
+                    writeHeartbeat(channel, now);
+                    FileLease lease = new FileLease(workerId, channel, lock);
+                    claimed = true;
+                    return lease;
+                }
+                lock.release();
+            }
+        } catch (OverlappingFileLockException e) {
+            // 本JVM内已持有该机器id
+        } catch (IOException e) {
+            throw new FrameworkException("抢占机器id失败: " + workerId, e);
+        } finally {
+            // 未抢占成功(包括加锁后读写心跳失败)时关闭文件，同时释放文件锁
+            if (!claimed) {
+                closeQuietly(channel);
+            }
+        }
+        return null;
+    }
+
+    private static long readHeartbeat(FileChannel channel) throws IOException {
+        if (channel.size() < Long.BYTES) {
+            return 0L;
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+        channel.read(buffer, 0);
+        buffer.flip();
+        return buffer.getLong();
+    }
+
+    private static void writeHeartbeat(FileChannel channel, long heartbeat) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+        buffer.putLong(heartbeat).flip();
+        channel.write(buffer, 0);
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+                // ignore
+            }
+        }
+    }
+
+    private static final class FileLease extends AbstractLease {
+
+        private final FileChannel channel;
+
+        private final FileLock lock;
+
+        private FileLease(long workerId, FileChannel channel, FileLock lock) {
+            super(workerId);
+            this.channel = channel;
+            this.lock = lock;
+        }
+
+        @Override
+        protected boolean renew() {
+            if (!lock.isValid()) {
+                return false;
+            }
+            try {
+                writeHeartbeat(channel, System.currentTimeMillis());
+                return true;
+            } catch (IOException e) {
+                throw new FrameworkException("机器id续约失败: " + getWorkerId(), e);
+            }
+        }
+
+        @Override
+        protected void release() {
+            try {
+                writeHeartbeat(channel, 0L);
+                lock.release();
+            } catch (IOException ignored) {
+                // 关闭通道时文件锁同样会被释放
+            } finally {
+                closeQuietly(channel);
+            }
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.mengcc.common.idgen;
+
+import com.google.common.base.Preconditions;
+import com.mengcc.common.exceptions.FrameworkException;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.regex.Pattern;
+
+/**
+ * 基于本地文件的号段存储，每个业务标识对应目录下的一个文件，文件内容为已分配的最大ID(8字节)。
+ *
+ * <pre>
+ * 租借时对文件加排他锁，同一台机器上的多个进程共享同一目录也不会分配到重叠的号段；
+ * 写入后强制刷盘，进程崩溃重启后从已持久化的最大ID继续分配，未用完的号段会被跳过。
+ * 业务标识直接作为文件名，只能包含字母、数字、'.'、'_'、'-'，且不能以'.'开头。
+ * </pre>
+ *
+ * @author zhouzq
+ * @date 2020/4/24
+ */
+public class FileSegmentStore implements SegmentStore {
+
+    private static final String FILE_SUFFIX = ".segment";
+
+    /**
+     * 合法的业务标识，不含路径分隔符，不以'.'开头，避免文件落到号段目录之外
+     */
+    private static final Pattern KEY_PATTERN = Pattern.compile("[A-Za-z0-9_-][A-Za-z0-9._-]*");
+
+    /**
+     * 同一JVM内对同一文件重复加锁会抛出OverlappingFileLockException，按文件路径先在进程内互斥
+     */
+    private static final ConcurrentMap<Path, Object> FILE_MUTEXES = new ConcurrentHashMap<>();
+
+    /**
+     * 号段文件所在目录
+     */
+    private final Path directory;
+
+    /**
+     * 首个号段的起始ID
+     */
+    private final long initialValue;
+
+    public FileSegmentStore(Path directory) {
+        this(directory, 1L);
+    }
+
+    public FileSegmentStore(Path directory, long initialValue) {
+        this.directory = Preconditions.checkNotNull(directory, "directory can't be null");
+        this.initialValue = initialValue;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new FrameworkException("创建号段目录失败: " + directory, e);
+        }
+    }
+
+    @Override
+    public IdSegment allocate(String key, int step) {
+        Preconditions.checkArgument(step > 0, "step must be greater than 0");
+        Preconditions.checkArgument(key != null && KEY_PATTERN.matcher(key).matches(),
+                "key [%s] can only contain letters, digits, '.', '_' and '-', and can't start with '.'", key);
+        Path file = directory.resolve(key + FILE_SUFFIX).toAbsolutePath().normalize();
+        synchronized (FILE_MUTEXES.computeIfAbsent(file, f -> new Object())) {
+            try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw");
+                 FileChannel channel = raf.getChannel()) {
+                FileLock lock = channel.lock();
+                try {
+                    return allocate(channel, step);
+                } finally {
+                    lock.release();
+                }
+            } catch (IOException e) {
+                throw new FrameworkException("租借号段失败: " + key, e);
+            }
+        }
+    }
+
+    /**
+     * 在已加锁的文件上读取已分配的最大ID并写回新的最大ID
+     */
+    private IdSegment allocate(FileChannel channel, int step) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+        long start = initialValue;
+        if (channel.size() >= Long.BYTES) {
+            channel.read(buffer, 0);
+            buffer.flip();
+            start = buffer.getLong();
+            buffer.clear();
+        }
+        long end = start + step;
+        buffer.putLong(end).flip();
+        channel.write(buffer, 0);
+        channel.force(true);
+        return new IdSegment(start, end);
+    }
+}
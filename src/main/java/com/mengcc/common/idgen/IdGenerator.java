@@ -1,5 +1,7 @@
 package com.mengcc.common.idgen;
 
+import com.google.common.base.Preconditions;
+
 /**
  * 主键ID生成器
  *
@@ -14,4 +16,40 @@ public interface IdGenerator {
      * @return 生成的主键ID
      */
     long generateId();
+
+    /**
+     * 批量生成主键ID
+     *
+     * @param n 生成的数量
+     * @return 按生成顺序排列的主键ID
+     */
+    default long[] generateIds(int n) {
+        Preconditions.checkArgument(n >= 0, "n can't be less than 0");
+        long[] ids = new long[n];
+        fill(ids, 0, n);
+        return ids;
+    }
+
+    /**
+     * 批量生成主键ID并写入数组的指定区间, 默认逐个调用{@link #generateId()}, 实现类可覆盖为一次性预留
+     *
+     * @param dst 目标数组
+     * @param off 写入的起始下标
+     * @param len 生成的数量
+     */
+    default void fill(long[] dst, int off, int len) {
+        Preconditions.checkPositionIndexes(off, off + len, dst.length);
+        for (int i = off, end = off + len; i < end; i++) {
+            dst[i] = generateId();
+        }
+    }
+
+    /**
+     * 运行指标的快照，供指标导出方定期拉取，不统计指标的实现返回{@link IdGeneratorMetrics.Snapshot#EMPTY}
+     *
+     * @return 指标快照
+     */
+    default IdGeneratorMetrics.Snapshot metricsSnapshot() {
+        return IdGeneratorMetrics.Snapshot.EMPTY;
+    }
 }
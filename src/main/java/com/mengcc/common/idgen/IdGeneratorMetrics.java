@@ -0,0 +1,103 @@
+package com.mengcc.common.idgen;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * ID生成器的运行指标，计数器均为LongAdder，发号线程之间不会因为统计而产生新的竞争。
+ * 指标导出方通过{@link IdGenerator#metricsSnapshot()}定期拉取快照。
+ *
+ * @author zhouzq
+ * @date 2020/5/14
+ */
+public final class IdGeneratorMetrics {
+
+    final LongAdder issued = new LongAdder();
+
+    final LongAdder exhaustionWaits = new LongAdder();
+
+    final LongAdder waitNanos = new LongAdder();
+
+    final LongAdder clockBackwards = new LongAdder();
+
+    final LongAdder contentionRetries = new LongAdder();
+
+    /**
+     * 当前指标的快照，各计数器分别读取，彼此之间不保证是同一时刻的值
+     */
+    public Snapshot snapshot() {
+        return new Snapshot(issued.sum(), exhaustionWaits.sum(), waitNanos.sum(), clockBackwards.sum(), contentionRetries.sum());
+    }
+
+    /**
+     * 不可变的指标快照
+     */
+    public static final class Snapshot {
+
+        /**
+         * 不统计指标的生成器返回的空快照
+         */
+        public static final Snapshot EMPTY = new Snapshot(0L, 0L, 0L, 0L, 0L);
+
+        private final long issued;
+
+        private final long exhaustionWaits;
+
+        private final long waitNanos;
+
+        private final long clockBackwards;
+
+        private final long contentionRetries;
+
+        public Snapshot(long issued, long exhaustionWaits, long waitNanos, long clockBackwards, long contentionRetries) {
+            this.issued = issued;
+            this.exhaustionWaits = exhaustionWaits;
+            this.waitNanos = waitNanos;
+            this.clockBackwards = clockBackwards;
+            this.contentionRetries = contentionRetries;
+        }
+
+        /**
+         * 已发放的ID数量
+         */
+        public long getIssued() {
+            return issued;
+        }
+
+        /**
+         * 可用ID用尽而等待的次数: 雪花算法为毫秒内序列用尽或等待时钟追上，号段为号段用尽，缓存为缓冲区取空
+         */
+        public long getExhaustionWaits() {
+            return exhaustionWaits;
+        }
+
+        /**
+         * 等待的总耗时(纳秒)
+         */
+        public long getWaitNanos() {
+            return waitNanos;
+        }
+
+        /**
+         * 检测到时钟回拨的次数，SnowflakeIdGenerator和CAS实现每次回拨只计一次，分片实现每次因回拨抛出异常计一次
+         */
+        public long getClockBackwards() {
+            return clockBackwards;
+        }
+
+        /**
+         * CAS竞争失败后重试的次数，基于锁的实现为0
+         */
+        public long getContentionRetries() {
+            return contentionRetries;
+        }
+
+        @Override
+        public String toString() {
+            return "IdGeneratorMetrics{issued=" + issued
+                    + ", exhaustionWaits=" + exhaustionWaits
+                    + ", waitNanos=" + waitNanos
+                    + ", clockBackwards=" + clockBackwards
+                    + ", contentionRetries=" + contentionRetries + '}';
+        }
+    }
+}
@@ -0,0 +1,101 @@
+package com.mengcc.common.idgen;
+
+import com.google.common.base.Preconditions;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Function;
+
+/**
+ * 按业务类型划分的ID生成器注册表，每个业务类型首次使用时创建独立的生成器，拥有独立的序列和锁，
+ * 订单、支付、日志等业务之间不再争抢同一个毫秒内序列，单节点容量随业务类型数成倍增加。
+ *
+ * <pre>
+ * IdGeneratorRegistry registry = IdGeneratorRegistry.snowflake(datacenterId, workerId);
+ * long orderId = registry.generateId("order");
+ * long payId = registry.generateId("payment");
+ * </pre>
+ *
+ * 注意: 位结构不变，不同业务类型的生成器使用相同的数据标识id和机器id，生成的ID只保证在同一业务类型内唯一，
+ * 不同业务类型的ID可能相同，不能混存在同一张表或同一个ID空间中。
+ *
+ * @author zhouzq
+ * @date 2020/5/15
+ */
+public class IdGeneratorRegistry {
+
+    private final ConcurrentMap<String, IdGenerator> generators = new ConcurrentHashMap<>();
+
+    /**
+     * 根据业务类型创建生成器
+     */
+    private final Function<String, ? extends IdGenerator> factory;
+
+    /**
+     * @param factory 根据业务类型创建生成器，每个业务类型只调用一次
+     */
+    public IdGeneratorRegistry(Function<String, ? extends IdGenerator> factory) {
+        this.factory = Preconditions.checkNotNull(factory, "factory can't be null");
+    }
+
+    /**
+     * 每个业务类型使用一个{@link SnowflakeIdGenerator}
+     *
+     * @param datacenterId 数据标识id
+     * @param workerId     机器id
+     */
+    public static IdGeneratorRegistry snowflake(long datacenterId, long workerId) {
+        // 提前校验，避免首次取号时才抛出异常
+        SnowflakeLayout.DEFAULT.nodeBits(datacenterId, workerId);
+        return new IdGeneratorRegistry(key -> new SnowflakeIdGenerator(datacenterId, workerId));
+    }
+
+    /**
+     * 获取业务类型对应的生成器，不存在时创建
+     *
+     * @param key 业务类型
+     * @return 该业务类型独享的生成器
+     */
+    public IdGenerator get(String key) {
+        Preconditions.checkNotNull(key, "key can't be null");
+        // 先无锁读取，JDK8的computeIfAbsent即使key已存在也会锁住所在的桶
+        IdGenerator generator = generators.get(key);
+        if (generator != null) {
+            return generator;
+        }
+        return generators.computeIfAbsent(key, k ->
+                Preconditions.checkNotNull(factory.apply(k), "factory returned null for key %s", k));
+    }
+
+    /**
+     * 使用业务类型对应的生成器生成ID
+     *
+     * @param key 业务类型
+     * @return 生成的ID
+     */
+    public long generateId(String key) {
+        return get(key).generateId();
+    }
+
+    /**
+     * 已创建生成器的业务类型
+     */
+    public Set<String> keys() {
+        return Collections.unmodifiableSet(generators.keySet());
+    }
+
+    /**
+     * 各业务类型生成器的指标快照
+     *
+     * @return 业务类型到指标快照的映射
+     */
+    public Map<String, IdGeneratorMetrics.Snapshot> metricsSnapshot() {
+        Map<String, IdGeneratorMetrics.Snapshot> snapshots = new LinkedHashMap<>();
+        generators.forEach((key, generator) -> snapshots.put(key, generator.metricsSnapshot()));
+        return snapshots;
+    }
+}
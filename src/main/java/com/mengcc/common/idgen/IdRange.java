@@ -0,0 +1,60 @@
+package com.mengcc.common.idgen;
+
+/**
+ * ID的闭区间[minId, maxId]，可直接用于主键范围查询:
+ * {@code where id between #{minId} and #{maxId}}
+ *
+ * @author zhouzq
+ * @date 2020/5/11
+ */
+public final class IdRange {
+
+    /**
+     * 最小ID(包含)
+     */
+    private final long minId;
+
+    /**
+     * 最大ID(包含)
+     */
+    private final long maxId;
+
+    public IdRange(long minId, long maxId) {
+        this.minId = minId;
+        this.maxId = maxId;
+    }
+
+    public long getMinId() {
+        return minId;
+    }
+
+    public long getMaxId() {
+        return maxId;
+    }
+
+    public boolean contains(long id) {
+        return id >= minId && id <= maxId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof IdRange)) {
+            return false;
+        }
+        IdRange that = (IdRange) o;
+        return minId == that.minId && maxId == that.maxId;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(minId) * 31 + Long.hashCode(maxId);
+    }
+
+    @Override
+    public String toString() {
+        return "IdRange[" + minId + ", " + maxId + "]";
+    }
+}
@@ -0,0 +1,45 @@
+package com.mengcc.common.idgen;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * 号段，表示一段连续的可用ID区间[start, end)
+ *
+ * @author zhouzq
+ * @date 2020/4/24
+ */
+public final class IdSegment {
+
+    /**
+     * 起始ID(包含)
+     */
+    private final long start;
+
+    /**
+     * 结束ID(不包含)
+     */
+    private final long end;
+
+    public IdSegment(long start, long end) {
+        Preconditions.checkArgument(start < end, "segment start %s must be less than end %s", start, end);
+        this.start = start;
+        this.end = end;
+    }
+
+    public long getStart() {
+        return start;
+    }
+
+    public long getEnd() {
+        return end;
+    }
+
+    public long size() {
+        return end - start;
+    }
+
+    @Override
+    public String toString() {
+        return "IdSegment[" + start + ", " + end + ")";
+    }
+}
@@ -0,0 +1,41 @@
+package com.mengcc.common.idgen;
+
+import com.google.common.base.Preconditions;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 基于内存的号段存储，进程重启后从初始值重新分配，适用于测试或单机临时ID
+ *
+ * @author zhouzq
+ * @date 2020/4/24
+ */
+public class InMemorySegmentStore implements SegmentStore {
+
+    /**
+     * 首个号段的起始ID
+     */
+    private final long initialValue;
+
+    /**
+     * 每个业务标识已分配的最大ID(不包含)
+     */
+    private final ConcurrentMap<String, AtomicLong> maxIds = new ConcurrentHashMap<>();
+
+    public InMemorySegmentStore() {
+        this(1L);
+    }
+
+    public InMemorySegmentStore(long initialValue) {
+        this.initialValue = initialValue;
+    }
+
+    @Override
+    public IdSegment allocate(String key, int step) {
+        Preconditions.checkArgument(step > 0, "step must be greater than 0");
+        long end = maxIds.computeIfAbsent(key, k -> new AtomicLong(initialValue)).addAndGet(step);
+        return new IdSegment(end - step, end);
+    }
+}
@@ -0,0 +1,64 @@
+package com.mengcc.common.idgen;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 基于内存的机器id分配器，只能保证同一JVM内互不冲突，适用于测试
+ *
+ * @author zhouzq
+ * @date 2020/4/30
+ */
+public class InMemoryWorkerIdAssigner extends AbstractWorkerIdAssigner {
+
+    /**
+     * 机器id -> 租约
+     */
+    private final ConcurrentMap<Long, MemoryLease> leases = new ConcurrentHashMap<>();
+
+    public InMemoryWorkerIdAssigner(long maxWorkerId) {
+        this(maxWorkerId, 30_000L);
+    }
+
+    public InMemoryWorkerIdAssigner(long maxWorkerId, long leaseMillis) {
+        super(maxWorkerId, leaseMillis);
+    }
+
+    @Override
+    protected AbstractLease tryClaim(long workerId) {
+        MemoryLease lease = new MemoryLease(workerId);
+        MemoryLease previous = leases.putIfAbsent(workerId, lease);
+        if (previous == null) {
+            return lease;
+        }
+        // 超过有效期未续约的租约可以被抢占
+        if (previous.expireAt < System.currentTimeMillis() && leases.replace(workerId, previous, lease)) {
+            return lease;
+        }
+        return null;
+    }
+
+    private final class MemoryLease extends AbstractLease {
+
+        private volatile long expireAt;
+
+        private MemoryLease(long workerId) {
+            super(workerId);
+            this.expireAt = System.currentTimeMillis() + leaseMillis;
+        }
+
+        @Override
+        protected boolean renew() {
+            if (leases.get(getWorkerId()) != this) {
+                return false;
+            }
+            expireAt = System.currentTimeMillis() + leaseMillis;
+            return true;
+        }
+
+        @Override
+        protected void release() {
+            leases.remove(getWorkerId(), this);
+        }
+    }
+}
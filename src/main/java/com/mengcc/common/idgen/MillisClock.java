@@ -0,0 +1,21 @@
+package com.mengcc.common.idgen;
+
+/**
+ * ID生成器使用的毫秒时钟，可按场景替换为不同精度和开销的实现
+ *
+ * @author zhouzq
+ * @date 2020/4/18
+ * @see SystemMillisClock
+ * @see MonotonicMillisClock
+ * @see TickingMillisClock
+ */
+@FunctionalInterface
+public interface MillisClock {
+
+    /**
+     * 获取当前时间
+     *
+     * @return 距1970-01-01T00:00:00Z的毫秒数
+     */
+    long currentMillis();
+}
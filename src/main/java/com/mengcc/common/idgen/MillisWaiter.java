@@ -0,0 +1,97 @@
+package com.mengcc.common.idgen;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 毫秒内序列用尽或时钟回拨时等待时钟前进的自适应等待器，等待的次数和耗时记入{@link IdGeneratorMetrics}。
+ *
+ * <pre>
+ * 1. 先自旋{@link #SPIN_NANOS}，JDK9及以上每次自旋调用Thread.onSpinWait提示CPU降低功耗、让出超线程资源；
+ * 2. 仍未到达下一个毫秒时改为LockSupport.parkNanos: 相差整毫秒时直接park整毫秒，
+ *    不足一毫秒时由于不知道当前毫秒已经过去多少，每次最多park {@link #MAX_PARK_NANOS}，逐步逼近毫秒边界。
+ * </pre>
+ *
+ * 线程被中断时不会抛出异常也不会清除中断标记，改为Thread.yield等待。
+ *
+ * @author zhouzq
+ * @date 2020/5/13
+ */
+final class MillisWaiter {
+
+    /**
+     * 自旋阶段的最长时间
+     */
+    private static final long SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(20);
+
+    /**
+     * 不足一毫秒时每次park的最长时间
+     */
+    private static final long MAX_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    /**
+     * Thread.onSpinWait，JDK8下为null
+     */
+    private static final MethodHandle ON_SPIN_WAIT = findOnSpinWait();
+
+    private final IdGeneratorMetrics metrics;
+
+    MillisWaiter(IdGeneratorMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * 等待到时钟越过lastTime
+     *
+     * @param clock    毫秒时钟
+     * @param lastTime 上次生成ID的时间截
+     * @return 大于lastTime的当前时间截
+     */
+    long awaitAfter(MillisClock clock, long lastTime) {
+        long time = clock.currentMillis();
+        if (time > lastTime) {
+            return time;
+        }
+        metrics.exhaustionWaits.increment();
+        long start = System.nanoTime();
+        try {
+            do {
+                long elapsed = System.nanoTime() - start;
+                if (elapsed < SPIN_NANOS) {
+                    onSpinWait();
+                } else if (Thread.currentThread().isInterrupted()) {
+                    Thread.yield();
+                } else if (lastTime > time) {
+                    LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(lastTime - time));
+                } else {
+                    LockSupport.parkNanos(this, MAX_PARK_NANOS);
+                }
+                time = clock.currentMillis();
+            } while (time <= lastTime);
+            return time;
+        } finally {
+            metrics.waitNanos.add(System.nanoTime() - start);
+        }
+    }
+
+    private static void onSpinWait() {
+        if (ON_SPIN_WAIT != null) {
+            try {
+                ON_SPIN_WAIT.invokeExact();
+            } catch (Throwable ignore) {
+                // Thread.onSpinWait不会抛出异常
+            }
+        }
+    }
+
+    private static MethodHandle findOnSpinWait() {
+        try {
+            return MethodHandles.lookup().findStatic(Thread.class, "onSpinWait", MethodType.methodType(void.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.mengcc.common.idgen;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 以{@link System#nanoTime()}为基准的单调时钟。
+ *
+ * <pre>
+ * 创建时记录一次系统时间作为锚点，之后的时间 = 锚点 + nanoTime的增量，
+ * 因此不受系统时间回拨影响，但长时间运行后可能与墙上时间产生漂移。
+ * </pre>
+ *
+ * @author zhouzq
+ * @date 2020/4/18
+ */
+public final class MonotonicMillisClock implements MillisClock {
+
+    /**
+     * 锚点的系统时间(毫秒)
+     */
+    private final long anchorMillis;
+
+    /**
+     * 锚点的nanoTime
+     */
+    private final long anchorNanos;
+
+    public MonotonicMillisClock() {
+        this.anchorMillis = System.currentTimeMillis();
+        this.anchorNanos = System.nanoTime();
+    }
+
+    @Override
+    public long currentMillis() {
+        return anchorMillis + TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - anchorNanos);
+    }
+}
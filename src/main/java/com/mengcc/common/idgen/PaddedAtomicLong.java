@@ -0,0 +1,30 @@
+package com.mengcc.common.idgen;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 填充到独占缓存行的AtomicLong，避免与相邻的热点变量产生伪共享
+ *
+ * @author zhouzq
+ * @date 2020/4/28
+ */
+class PaddedAtomicLong extends AtomicLong {
+
+    private static final long serialVersionUID = -3415778863941386253L;
+
+    /**
+     * AtomicLong的value占8字节，再填充6个long，加上对象头共64字节
+     */
+    public volatile long p1, p2, p3, p4, p5, p6 = 7L;
+
+    PaddedAtomicLong(long initialValue) {
+        super(initialValue);
+    }
+
+    /**
+     * 防止填充字段被优化掉
+     */
+    public long sumPaddingToPreventOptimisation() {
+        return p1 + p2 + p3 + p4 + p5 + p6;
+    }
+}
@@ -0,0 +1,211 @@
+package com.mengcc.common.idgen;
+
+import com.google.common.base.Preconditions;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 号段模式(双缓冲)的ID生成器，生成的ID紧凑、连续递增，适合希望主键较短的表。
+ *
+ * <pre>
+ * 每次从{@link SegmentStore}租借一段ID(如10000个)，在内存中用AtomicLong依次发放；
+ * 当前号段使用到一定比例(默认20%)时，在后台线程异步租借下一个号段，
+ * 当前号段用完后直接切换，正常情况下调用方不会阻塞在号段存储上。
+ * 每个号段的下一个号段只租借一次(预取或同步租借)，号段按租借顺序发放，ID严格递增。
+ *
+ * 进程重启时未用完的号段会被丢弃，ID整体递增但不保证没有空洞。
+ * </pre>
+ *
+ * @author zhouzq
+ * @date 2020/4/24
+ */
+@Slf4j
+public class SegmentIdGenerator implements IdGenerator {
+
+    /**
+     * 默认号段长度
+     */
+    public static final int DEFAULT_STEP = 10000;
+
+    /**
+     * 默认在当前号段使用20%后预取下一个号段
+     */
+    public static final double DEFAULT_PREFETCH_RATIO = 0.2D;
+
+    /**
+     * 号段用尽时尚未触发预取的标记，切换号段的线程设置后不会再有迟到的预取
+     */
+    private static final CompletableFuture<IdSegment> NOT_PREFETCHED = new CompletableFuture<>();
+
+    /**
+     * 默认的预取线程，所有生成器共享
+     */
+    private static final Executor DEFAULT_PREFETCH_EXECUTOR = Executors.newCachedThreadPool(r -> {
+        Thread thread = new Thread(r, "segment-id-prefetch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final SegmentStore store;
+
+    /**
+     * 业务标识
+     */
+    private final String key;
+
+    /**
+     * 号段长度
+     */
+    private final int step;
+
+    /**
+     * 当前号段使用到多少比例时开始预取
+     */
+    private final double prefetchRatio;
+
+    private final Executor prefetchExecutor;
+
+    /**
+     * 正在发放的号段
+     */
+    private volatile Buffer current;
+
+    /**
+     * 运行指标，号段用尽后切换号段记为exhaustionWaits
+     */
+    private final IdGeneratorMetrics metrics = new IdGeneratorMetrics();
+
+    public SegmentIdGenerator(SegmentStore store, String key) {
+        this(store, key, DEFAULT_STEP, DEFAULT_PREFETCH_RATIO, DEFAULT_PREFETCH_EXECUTOR);
+    }
+
+    public SegmentIdGenerator(SegmentStore store, String key, int step) {
+        this(store, key, step, DEFAULT_PREFETCH_RATIO, DEFAULT_PREFETCH_EXECUTOR);
+    }
+
+    /**
+     * @param store            号段存储
+     * @param key              业务标识
+     * @param step             号段长度
+     * @param prefetchRatio    当前号段使用到多少比例时开始预取，取值(0, 1]
+     * @param prefetchExecutor 执行预取的线程池
+     */
+    public SegmentIdGenerator(SegmentStore store, String key, int step, double prefetchRatio, Executor prefetchExecutor) {
+        Preconditions.checkArgument(step > 0, "step must be greater than 0");
+        Preconditions.checkArgument(prefetchRatio > 0 && prefetchRatio <= 1, "prefetch ratio must be in (0, 1]");
+        this.store = Preconditions.checkNotNull(store, "store can't be null");
+        this.key = Preconditions.checkNotNull(key, "key can't be null");
+        this.step = step;
+        this.prefetchRatio = prefetchRatio;
+        this.prefetchExecutor = Preconditions.checkNotNull(prefetchExecutor, "prefetchExecutor can't be null");
+        this.current = new Buffer(store.allocate(key, step), prefetchRatio);
+    }
+
+    @Override
+    public long generateId() {
+        for (;;) {
+            Buffer buffer = current;
+            long id = buffer.cursor.getAndIncrement();
+            if (id < buffer.end) {
+                if (id >= buffer.prefetchAt && buffer.next.get() == null) {
+                    prefetch(buffer);
+                }
+                metrics.issued.increment();
+                return id;
+            }
+            switchBuffer(buffer);
+        }
+    }
+
+    @Override
+    public IdGeneratorMetrics.Snapshot metricsSnapshot() {
+        return metrics.snapshot();
+    }
+
+    /**
+     * 异步租借buffer的下一个号段，只有把预取结果登记到buffer上的线程会发起租借
+     *
+     * @param buffer 触发预取的号段
+     */
+    private void prefetch(Buffer buffer) {
+        CompletableFuture<IdSegment> future = new CompletableFuture<>();
+        if (!buffer.next.compareAndSet(null, future)) {
+            return;
+        }
+        try {
+            prefetchExecutor.execute(() -> {
+                try {
+                    future.complete(store.allocate(key, step));
+                } catch (Throwable e) {
+                    future.completeExceptionally(e);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            future.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * 当前号段用尽，切换到该号段预取的下一个号段；预取未完成时等待，预取失败或未触发时同步租借
+     *
+     * @param exhausted 已用尽的号段
+     */
+    private synchronized void switchBuffer(Buffer exhausted) {
+        if (current != exhausted) {
+            // 其他线程已经完成切换
+            return;
+        }
+        // 每个号段用尽只由完成切换的线程计一次，等锁的线程不重复统计
+        long start = System.nanoTime();
+        metrics.exhaustionWaits.increment();
+        IdSegment segment = null;
+        // 尚未触发预取时标记为不再预取，避免迟到的预取另外租借一个号段
+        exhausted.next.compareAndSet(null, NOT_PREFETCHED);
+        CompletableFuture<IdSegment> future = exhausted.next.get();
+        if (future != NOT_PREFETCHED) {
+            try {
+                segment = future.join();
+            } catch (CompletionException e) {
+                log.warn(">> prefetch id segment for [{}] failed, allocating synchronously", key, e.getCause());
+            }
+        }
+        if (segment == null) {
+            segment = store.allocate(key, step);
+        }
+        current = new Buffer(segment, prefetchRatio);
+        metrics.waitNanos.add(System.nanoTime() - start);
+    }
+
+    /**
+     * 正在发放的号段及其游标
+     */
+    private static final class Buffer {
+
+        private final AtomicLong cursor;
+
+        private final long end;
+
+        /**
+         * 游标达到该值时触发预取
+         */
+        private final long prefetchAt;
+
+        /**
+         * 本号段预取的下一个号段，切换时只使用这里登记的结果
+         */
+        private final AtomicReference<CompletableFuture<IdSegment>> next = new AtomicReference<>();
+
+        private Buffer(IdSegment segment, double prefetchRatio) {
+            this.cursor = new AtomicLong(segment.getStart());
+            this.end = segment.getEnd();
+            this.prefetchAt = Math.min(segment.getStart() + (long) (segment.size() * prefetchRatio), end - 1);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package com.mengcc.common.idgen;
+
+/**
+ * 号段存储，负责按业务标识持久化已分配的最大ID，并租借新的号段
+ *
+ * <pre>
+ * 实现类必须保证同一业务标识在多个进程、多个线程之间租借到的号段互不重叠。
+ * </pre>
+ *
+ * @author zhouzq
+ * @date 2020/4/24
+ * @see InMemorySegmentStore
+ * @see FileSegmentStore
+ */
+public interface SegmentStore {
+
+    /**
+     * 为指定业务标识租借下一个号段
+     *
+     * @param key  业务标识
+     * @param step 号段长度
+     * @return 新租借的号段
+     */
+    IdSegment allocate(String key, int step);
+}
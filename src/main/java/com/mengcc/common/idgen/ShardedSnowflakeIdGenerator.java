@@ -0,0 +1,216 @@
+package com.mengcc.common.idgen;
+
+import com.google.common.base.Preconditions;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 分片的雪花算法ID生成器，位结构与{@link SnowflakeIdGenerator}一致，
+ * 生成的ID可以通过{@link SnowflakeIdGenerator#analysisId(Long)}解析出正确的时间戳。
+ *
+ * <pre>
+ * 把12位序列再拆成两段，高位为分片号，低位为分片内序列(以4个分片为例):
+ *
+ * 0 - 41位时间截 - 5位datacenterId - 5位workerId - 00 - 0000000000
+ *                                                 |分片|  |分片内序列|
+ *
+ * 每个分片各自维护"时间截 + 分片内序列"，分片之间按128字节间隔存放，互不共享缓存行，
+ * 线程按线程id(或调用方指定的条带号)落到固定分片上，发号时不会与其他分片竞争。
+ *
+ * 取舍:
+ * 1. 单个分片每毫秒只能发 4096 / 分片数 个ID，某个分片用尽后即使其他分片空闲也要等到下一毫秒，
+ *    因此分片数越多，单线程突发能力越低，总容量不变。
+ * 2. 同一分片内的ID严格递增；不同分片之间只在毫秒粒度上有序，同一毫秒内分片号大的ID总是更大，
+ *    与实际生成的先后无关。需要全局严格递增的场景请使用{@link SnowflakeIdGenerator}或{@link CasSnowflakeIdGenerator}。
+ * 3. analysisId解析出的sequence包含分片号，时间戳、datacenterId和workerId不受影响。
+ * 4. 使用自定义{@link SnowflakeLayout}时，分片号从序列段的高位划分，分片数不能超过序列段的容量。
+ * </pre>
+ *
+ * @author zhouzq
+ * @date 2020/4/22
+ */
+public class ShardedSnowflakeIdGenerator implements IdGenerator {
+
+    /**
+     * 相邻分片状态之间间隔的long个数(16 * 8 = 128字节)，避免伪共享
+     */
+    private static final int PADDING = 16;
+
+    /**
+     * ID的位结构
+     */
+    private final SnowflakeLayout layout;
+
+    /**
+     * 开始时间截
+     */
+    private final long epoch;
+
+    /**
+     * 数据标识id与机器id左移后拼接好的节点位
+     */
+    private final long nodeBits;
+
+    /**
+     * 分片号所占的位数
+     */
+    private final int shardBits;
+
+    /**
+     * 分片内序列所占的位数
+     */
+    private final int localSequenceBits;
+
+    /**
+     * 分片内序列的掩码
+     */
+    private final long localSequenceMask;
+
+    /**
+     * 毫秒时钟
+     */
+    private final MillisClock clock;
+
+    /**
+     * 每个分片的状态，高位为上次生成ID的时间截差值，低位为分片内序列
+     */
+    private final AtomicLongArray states;
+
+    /**
+     * 运行指标
+     */
+    private final IdGeneratorMetrics metrics = new IdGeneratorMetrics();
+
+    /**
+     * 等待时钟前进的等待器
+     */
+    private final MillisWaiter waiter = new MillisWaiter(metrics);
+
+    public ShardedSnowflakeIdGenerator(long datacenterId, long workerId, int shardCount) {
+        this(datacenterId, workerId, shardCount, SystemMillisClock.INSTANCE);
+    }
+
+    /**
+     * @param datacenterId 数据标识id
+     * @param workerId     机器id
+     * @param shardCount   分片数，必须是2的幂且不大于4096，一般取CPU核数向上取整到2的幂
+     * @param clock        毫秒时钟
+     */
+    public ShardedSnowflakeIdGenerator(long datacenterId, long workerId, int shardCount, MillisClock clock) {
+        this(SnowflakeLayout.DEFAULT, datacenterId, workerId, shardCount, clock);
+    }
+
+    /**
+     * @param layout       ID的位结构
+     * @param datacenterId 数据标识id
+     * @param workerId     机器id
+     * @param shardCount   分片数，必须是2的幂且不大于序列段的容量
+     * @param clock        毫秒时钟
+     */
+    public ShardedSnowflakeIdGenerator(SnowflakeLayout layout, long datacenterId, long workerId, int shardCount, MillisClock clock) {
+        this.layout = Preconditions.checkNotNull(layout, "layout can't be null");
+        int sequenceBits = layout.getSequenceBits();
+        Preconditions.checkArgument(shardCount > 0 && Integer.bitCount(shardCount) == 1
+                        && Integer.numberOfTrailingZeros(shardCount) <= Math.min(sequenceBits, Integer.SIZE - 2),
+                "shard count must be a power of two and not greater than 2^%s", sequenceBits);
+        // 每个分片占PADDING个long，分片数过大时数组长度会溢出int
+        Preconditions.checkArgument(shardCount <= Integer.MAX_VALUE / PADDING,
+                "shard count must not be greater than %s, but was %s", Integer.MAX_VALUE / PADDING, shardCount);
+        this.epoch = layout.getEpoch();
+        this.nodeBits = layout.nodeBits(datacenterId, workerId);
+        this.shardBits = Integer.numberOfTrailingZeros(shardCount);
+        this.localSequenceBits = sequenceBits - shardBits;
+        this.localSequenceMask = -1L ^ (-1L << localSequenceBits);
+        this.clock = Preconditions.checkNotNull(clock, "clock can't be null");
+        this.states = new AtomicLongArray(shardCount * PADDING);
+    }
+
+    /**
+     * 按当前线程选择分片生成ID
+     */
+    @Override
+    public long generateId() {
+        return generateId(shardOf(Thread.currentThread().getId()));
+    }
+
+    /**
+     * 在指定条带对应的分片上生成ID，调用方可以自行保证不同线程使用不同的条带号
+     *
+     * @param stripe 条带号，按分片数取模
+     * @return 生成的ID
+     */
+    public long generateId(int stripe) {
+        int shard = stripe & ((1 << shardBits) - 1);
+        int index = shard * PADDING;
+        long shardSequenceBits = (long) shard << localSequenceBits;
+        for (;;) {
+            long current = states.get(index);
+            long lastTime = current >>> localSequenceBits;
+            long currentTime = getCurrentMillis() - epoch;
+            //如果当前时间小于上一次ID生成的时间戳，说明系统时钟回退过这个时候应当抛出异常
+            if (lastTime > currentTime) {
+                metrics.clockBackwards.increment();
+                throw new IllegalStateException(String.format(
+                        "Clock is moving backwards, last time is %d milliseconds, current time is %d milliseconds",
+                        lastTime + epoch, currentTime + epoch));
+            }
+
+            long next;
+            if (lastTime == currentTime) {
+                if ((current & localSequenceMask) == localSequenceMask) {
+                    // 分片内序列溢出，等待到下一个毫秒
+                    waiter.awaitAfter(clock, lastTime + epoch);
+                    continue;
+                }
+                next = current + 1;
+            } else {
+                layout.checkTimestamp(currentTime + epoch);
+                next = currentTime << localSequenceBits;
+            }
+
+            if (states.compareAndSet(index, current, next)) {
+                metrics.issued.increment();
+                return layout.compose((next >>> localSequenceBits) + epoch, nodeBits, shardSequenceBits | (next & localSequenceMask));
+            }
+            metrics.contentionRetries.increment();
+        }
+    }
+
+    /**
+     * 分片数
+     */
+    public int getShardCount() {
+        return 1 << shardBits;
+    }
+
+    /**
+     * 线程id打散后取模得到分片号
+     */
+    private int shardOf(long threadId) {
+        long h = threadId * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32);
+    }
+
+    @Override
+    public IdGeneratorMetrics.Snapshot metricsSnapshot() {
+        return metrics.snapshot();
+    }
+
+    /**
+     * 等待时钟前进的次数，同{@link IdGeneratorMetrics.Snapshot#getExhaustionWaits()}
+     */
+    public long getWaitCount() {
+        return metricsSnapshot().getExhaustionWaits();
+    }
+
+    /**
+     * 等待时钟前进的总耗时(纳秒)，同{@link IdGeneratorMetrics.Snapshot#getWaitNanos()}
+     */
+    public long getWaitNanos() {
+        return metricsSnapshot().getWaitNanos();
+    }
+
+    private long getCurrentMillis() {
+        return clock.currentMillis();
+    }
+}
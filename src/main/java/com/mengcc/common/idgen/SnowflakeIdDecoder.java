@@ -0,0 +1,141 @@
+package com.mengcc.common.idgen;
+
+import com.google.common.base.Preconditions;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 批量解析雪花算法ID，按列写入与ID数组平行的基本类型数组，解析过程不产生任何对象。
+ *
+ * <pre>
+ * long[] timestamps = new long[ids.length];
+ * long[] workerIds = new long[ids.length];
+ * SnowflakeIdDecoder.DEFAULT.decode(ids, timestamps, null, workerIds, null);
+ * </pre>
+ *
+ * 不需要的列传null即可跳过；数据量很大时可以使用{@link #parallelDecode}拆分到ForkJoinPool中并行解析。
+ *
+ * @author zhouzq
+ * @date 2020/5/8
+ */
+public final class SnowflakeIdDecoder {
+
+    /**
+     * 按默认位结构解析
+     */
+    public static final SnowflakeIdDecoder DEFAULT = new SnowflakeIdDecoder(SnowflakeLayout.DEFAULT);
+
+    /**
+     * 并行解析时每个子任务至少处理的ID数量
+     */
+    private static final int PARALLEL_THRESHOLD = 1 << 16;
+
+    private final SnowflakeLayout layout;
+
+    public SnowflakeIdDecoder(SnowflakeLayout layout) {
+        this.layout = Preconditions.checkNotNull(layout, "layout can't be null");
+    }
+
+    /**
+     * 解析全部ID
+     *
+     * @param ids           待解析的ID
+     * @param timestamps    时间截，可为null
+     * @param datacenterIds 数据标识id，可为null
+     * @param workerIds     机器id，可为null
+     * @param sequences     毫秒内序列，可为null
+     */
+    public void decode(long[] ids, long[] timestamps, long[] datacenterIds, long[] workerIds, long[] sequences) {
+        checkColumns(ids.length, timestamps, datacenterIds, workerIds, sequences);
+        decodeRange(ids, 0, ids.length, timestamps, datacenterIds, workerIds, sequences);
+    }
+
+    /**
+     * 拆分到ForkJoinPool中并行解析全部ID，数据量较小时直接在当前线程解析
+     *
+     * @param pool 执行解析的线程池，如{@link ForkJoinPool#commonPool()}
+     */
+    public void parallelDecode(long[] ids, long[] timestamps, long[] datacenterIds, long[] workerIds, long[] sequences,
+                               ForkJoinPool pool) {
+        checkColumns(ids.length, timestamps, datacenterIds, workerIds, sequences);
+        if (ids.length <= PARALLEL_THRESHOLD) {
+            decodeRange(ids, 0, ids.length, timestamps, datacenterIds, workerIds, sequences);
+            return;
+        }
+        pool.invoke(new DecodeTask(ids, 0, ids.length, timestamps, datacenterIds, workerIds, sequences));
+    }
+
+    private void decodeRange(long[] ids, int from, int to,
+                             long[] timestamps, long[] datacenterIds, long[] workerIds, long[] sequences) {
+        // 每一列单独循环，循环体简单，便于JIT展开和向量化
+        if (timestamps != null) {
+            for (int i = from; i < to; i++) {
+                timestamps[i] = layout.timestampOf(ids[i]);
+            }
+        }
+        if (datacenterIds != null) {
+            for (int i = from; i < to; i++) {
+                datacenterIds[i] = layout.datacenterIdOf(ids[i]);
+            }
+        }
+        if (workerIds != null) {
+            for (int i = from; i < to; i++) {
+                workerIds[i] = layout.workerIdOf(ids[i]);
+            }
+        }
+        if (sequences != null) {
+            for (int i = from; i < to; i++) {
+                sequences[i] = layout.sequenceOf(ids[i]);
+            }
+        }
+    }
+
+    private static void checkColumns(int length, long[]... columns) {
+        for (long[] column : columns) {
+            Preconditions.checkArgument(column == null || column.length >= length,
+                    "column length must be at least %s", length);
+        }
+    }
+
+    private final class DecodeTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 2316045879377624601L;
+
+        private final long[] ids;
+
+        private final int from;
+
+        private final int to;
+
+        private final long[] timestamps;
+
+        private final long[] datacenterIds;
+
+        private final long[] workerIds;
+
+        private final long[] sequences;
+
+        private DecodeTask(long[] ids, int from, int to,
+                           long[] timestamps, long[] datacenterIds, long[] workerIds, long[] sequences) {
+            this.ids = ids;
+            this.from = from;
+            this.to = to;
+            this.timestamps = timestamps;
+            this.datacenterIds = datacenterIds;
+            this.workerIds = workerIds;
+            this.sequences = sequences;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= PARALLEL_THRESHOLD) {
+                decodeRange(ids, from, to, timestamps, datacenterIds, workerIds, sequences);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new DecodeTask(ids, from, mid, timestamps, datacenterIds, workerIds, sequences),
+                    new DecodeTask(ids, mid, to, timestamps, datacenterIds, workerIds, sequences));
+        }
+    }
+}
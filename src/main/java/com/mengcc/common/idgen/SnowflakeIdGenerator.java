@@ -4,9 +4,7 @@ import com.google.common.base.Preconditions;
 import com.mengcc.common.utils.JacksonUtils;
 import com.mengcc.common.vo.IdVo;
 
-import java.time.LocalDateTime;
-import java.time.Month;
-import java.time.ZoneId;
+import java.util.List;
 
 /**
  * Twitter的分布式自增ID雪花算法，长度为64位。
@@ -19,7 +17,7 @@ import java.time.ZoneId;
  * 1位标识，由于long基本类型在Java中是带符号的，最高位是符号位，正数是0，负数是1，所以id一般是正数，最高位是0
  *
  * 41位时间截(毫秒级)，注意，41位时间截不是存储当前时间的时间截，而是存储时间截的差值（当前时间截 - 开始时间截)得到的值，
- * 这里的开始时间截固定为EPOCH的值。
+ * 这里的开始时间截默认为2018年8月1日零点。
  * 41位的时间截，可以使用69年，年T = (1L << 41) / (1000L * 60 * 60 * 24 * 365) = 69年
  *
  * 10位的数据机器位，可以部署在1024个节点，包括5位datacenterId和5位workerId
@@ -29,6 +27,8 @@ import java.time.ZoneId;
  * 加起来刚好64位，为一个Long型。(转换成字符串长度为18)
  *
  * SnowFlake的优点是，整体上按照时间自增排序，并且整个分布式系统内不会产生ID碰撞(由数据中心ID和机器ID作区分)，并且效率较高，经测试，SnowFlake每秒能够产生26万ID左右。
+ *
+ * 以上为默认位结构{@link SnowflakeLayout#DEFAULT}，各段位数和开始时间截可以通过{@link SnowflakeLayout}调整。
  * </pre>
  *
  * @author zhouzq
@@ -37,151 +37,487 @@ import java.time.ZoneId;
 public class SnowflakeIdGenerator implements IdGenerator {
 
     /**
-     * 时间偏移量(开始时间截)
+     * ID的位结构
      */
-    private static final long EPOCH;
-
+    private final SnowflakeLayout layout;
     /**
-     * 自增量占用位数
+     * 毫秒内序列的掩码，默认位结构下为4095 (0b111111111111=0xfff=4095)
      */
-    private static final long SEQUENCE_BITS = 12L;
-
+    private final long sequenceMask;
     /**
-     * 数据标识id所占的位数
+     * 数据标识id与机器id左移后拼接好的节点位
      */
-    private static final long DATACENTER_ID_BITS = 5L;
-
+    private final long nodeBits;
     /**
-     * 机器id所占的位数
+     * 备用机器id对应的节点位
      */
-    private static final long WORKER_ID_BITS = 5L;
-
+    private final long backupNodeBits;
     /**
-     * 生成自增量的掩码，这里为4095 (0b111111111111=0xfff=4095)
+     * 毫秒内序列(0~4095)
      */
-    private static final long SEQUENCE_MASK = -1L ^ (-1L << SEQUENCE_BITS);
-
+    private long sequence;
     /**
-     * 支持的最大数据标识id，结果是31
+     * 上次生成ID的时间截
      */
-    private static final long DATACENTER_ID_MAX_VALUE = -1L ^ (-1L << DATACENTER_ID_BITS);
-
+    private long lastTime;
     /**
-     * 支持的最大机器id，结果是31 (这个移位算法可以很快的计算出几位二进制数所能表示的最大十进制数)
+     * 毫秒时钟
      */
-    private static final long WORKER_ID_MAX_VALUE = -1L ^ (-1L << WORKER_ID_BITS);
-
+    private final MillisClock clock;
     /**
-     * 机器id左移位数(左移12位)
+     * 时钟回拨的处理策略
      */
-    private static final long WORKER_ID_LEFT_SHIFT_BITS = SEQUENCE_BITS;
-
+    private final ClockBackwardsPolicy clockBackwardsPolicy;
     /**
-     * 数据标识id左移位数(左移5+12=17位)
+     * 时钟回拨处理次数统计
      */
-    private static final long DATACENTER_ID_LEFT_SHIFT_BITS = WORKER_ID_BITS + SEQUENCE_BITS;
-
+    private final ClockBackwardsCounters clockBackwardsCounters = new ClockBackwardsCounters();
     /**
-     * 时间戳左移位数(左移5+5+12=22位)
+     * 备用机器id的毫秒内序列
      */
-    private static final long TIMESTAMP_LEFT_SHIFT_BITS = DATACENTER_ID_BITS + WORKER_ID_BITS + SEQUENCE_BITS;
-
+    private long backupSequence;
     /**
-     * 数据标识id，值的范围在[0,31]之间，一般可以设置机房的IDC
+     * 备用机器id上次生成ID的时间截
      */
-    private long datacenterId;
+    private long backupLastTime;
     /**
-     * 机器id，值的范围在[0,31]之间，一般可以设置机器编号
+     * 上次读取到的系统时钟，用于区分新发生的回拨和回拨后时钟尚未追上的后续调用
      */
-    private long workerId;
+    private long observedMillis;
     /**
-     * 毫秒内序列(0~4095)
+     * fill预留了未来的毫秒时的系统时钟，没有预留时为Long.MAX_VALUE
      */
-    private long sequence;
+    private long reservedFrom = Long.MAX_VALUE;
     /**
-     * 上次生成ID的时间截
+     * 运行指标
      */
-    private long lastTime;
-
+    private final IdGeneratorMetrics metrics = new IdGeneratorMetrics();
+    /**
+     * 等待时钟前进的等待器
+     */
+    private final MillisWaiter waiter = new MillisWaiter(metrics);
 
-    static {
-        // 初始化时间偏移量，固定为2019年10月31日零点
-        LocalDateTime dateTime = LocalDateTime.of(2018, Month.AUGUST, 1, 0, 0, 0, 0);
-        ZoneId zone = ZoneId.systemDefault();
-        EPOCH = dateTime.atZone(zone).toInstant().toEpochMilli();
-    }
 
+    /**
+     * 数据标识id和机器id均为0，多个实例同时使用会生成重复的ID，多实例部署时应通过{@link WorkerIdAssigner}租借机器id
+     */
     public SnowflakeIdGenerator() {
+        this(0L, 0L);
     }
 
     public SnowflakeIdGenerator(long datacenterId, long workerId) {
-        Preconditions.checkArgument(datacenterId >= 0 && datacenterId <= DATACENTER_ID_MAX_VALUE,
-                "datacenter Id can't be greater than %d or less than 0", DATACENTER_ID_MAX_VALUE);
-        Preconditions.checkArgument(workerId >= 0L && workerId <= WORKER_ID_MAX_VALUE,
-                "worker Id can't be greater than %d or less than 0", WORKER_ID_MAX_VALUE);
-        this.datacenterId = datacenterId;
-        this.workerId = workerId;
+        this(datacenterId, workerId, SystemMillisClock.INSTANCE);
     }
 
+    public SnowflakeIdGenerator(long datacenterId, long workerId, MillisClock clock) {
+        this(datacenterId, workerId, clock, ClockBackwardsPolicy.fail());
+    }
+
+    public SnowflakeIdGenerator(long datacenterId, long workerId, MillisClock clock, ClockBackwardsPolicy clockBackwardsPolicy) {
+        this(SnowflakeLayout.DEFAULT, datacenterId, workerId, clock, clockBackwardsPolicy);
+    }
+
+    public SnowflakeIdGenerator(SnowflakeLayout layout, long datacenterId, long workerId) {
+        this(layout, datacenterId, workerId, SystemMillisClock.INSTANCE, ClockBackwardsPolicy.fail());
+    }
+
+    /**
+     * @param layout               ID的位结构
+     * @param datacenterId         数据标识id
+     * @param workerId             机器id
+     * @param clock                毫秒时钟
+     * @param clockBackwardsPolicy 时钟回拨的处理策略
+     */
+    public SnowflakeIdGenerator(SnowflakeLayout layout, long datacenterId, long workerId,
+                                MillisClock clock, ClockBackwardsPolicy clockBackwardsPolicy) {
+        this.layout = Preconditions.checkNotNull(layout, "layout can't be null");
+        this.sequenceMask = layout.getSequenceMask();
+        this.nodeBits = layout.nodeBits(datacenterId, workerId);
+        this.clock = Preconditions.checkNotNull(clock, "clock can't be null");
+        this.clockBackwardsPolicy = Preconditions.checkNotNull(clockBackwardsPolicy, "clockBackwardsPolicy can't be null");
+        if (clockBackwardsPolicy.getStrategy() == ClockBackwardsPolicy.Strategy.BACKUP_WORKER) {
+            long backupWorkerId = clockBackwardsPolicy.getBackupWorkerId();
+            Preconditions.checkArgument(backupWorkerId != workerId, "backup worker Id can't be equal to worker Id");
+            this.backupNodeBits = layout.nodeBits(datacenterId, backupWorkerId);
+        } else {
+            this.backupNodeBits = nodeBits;
+        }
+    }
+
+    /**
+     * 毫秒内序列用尽或时钟回拨需要等待时，先释放监视器再等待，等待期间不阻塞其他线程
+     */
     @Override
-    public synchronized long generateId() {
+    public long generateId() {
+        for (;;) {
+            long result;
+            synchronized (this) {
+                result = nextId();
+            }
+            if (result >= 0L) {
+                metrics.issued.increment();
+                return result;
+            }
+            waiter.awaitAfter(clock, ~result);
+        }
+    }
+
+    /**
+     * 生成一个ID，需要等待时不等待
+     *
+     * @return 非负数为生成的ID，负数表示需要等到时钟越过~result之后重试
+     */
+    private long nextId() {
         long currentMillis = getCurrentMillis();
-        //如果当前时间小于上一次ID生成的时间戳，说明系统时钟回退过这个时候应当抛出异常
-        Preconditions.checkState(lastTime <= currentMillis,
-                "Clock is moving backwards, last time is %d milliseconds, current time is %d milliseconds", lastTime, currentMillis);
+        boolean movedBackwards = observe(currentMillis);
+        long time = currentMillis;
+        if (time < lastTime) {
+            if (currentMillis >= reservedFrom) {
+                // fill预留了未来的毫秒，时钟还未追上，不属于时钟回拨
+                return ~(lastTime - 1);
+            }
+            // 系统时钟回退过，按策略处理
+            if (movedBackwards) {
+                metrics.clockBackwards.increment();
+            }
+            if (clockBackwardsPolicy.getStrategy() == ClockBackwardsPolicy.Strategy.BACKUP_WORKER) {
+                return nextBackupId(currentMillis, movedBackwards);
+            }
+            time = onClockBackwards(currentMillis, movedBackwards);
+            if (time < 0L) {
+                return time;
+            }
+        }
 
-        if (lastTime == currentMillis) {
+        if (lastTime == time) {
             // 如果是同一时间生成的，则进行毫秒内序列
-            if (0L == (sequence = (sequence + 1) & SEQUENCE_MASK)) {
-                // 毫秒内序列溢出，阻塞到下一个毫秒，获得新的时间戳
-                currentMillis = waitUntilNextTime(currentMillis);
+            if (sequence == sequenceMask) {
+                // 毫秒内序列溢出，借用逻辑时间截时顺延到下一个毫秒，否则等到下一个毫秒，获得新的时间戳
+                if (!isBorrowing(time, currentMillis) || time + 1 - currentMillis > clockBackwardsPolicy.getToleranceMillis()) {
+                    return ~time;
+                }
+                time++;
+                sequence = 0;
+            } else {
+                sequence++;
             }
         } else {
             // 时间戳改变，毫秒内序列重置
+            layout.checkTimestamp(time);
             sequence = 0;
         }
 
         // 上次生成ID的时间截
-        lastTime = currentMillis;
+        lastTime = time;
+        reservedFrom = Long.MAX_VALUE;
 
         // 移位并通过或运算拼到一起组成64位的ID
-        return ((currentMillis - EPOCH) << TIMESTAMP_LEFT_SHIFT_BITS)
-                | (datacenterId << DATACENTER_ID_LEFT_SHIFT_BITS)
-                | (workerId << WORKER_ID_LEFT_SHIFT_BITS)
-                | sequence;
+        return layout.compose(time, nodeBits, sequence);
+    }
+
+    /**
+     * 在一次加锁、一次读取时钟内预留一段连续的序列号，当前毫秒用尽后顺延到后续毫秒，
+     * 预留了未来的毫秒时在锁外等待时钟追上
+     *
+     * @param dst 目标数组
+     * @param off 写入的起始下标
+     * @param len 生成的数量
+     */
+    @Override
+    public void fill(long[] dst, int off, int len) {
+        Preconditions.checkPositionIndexes(off, off + len, dst.length);
+        if (len == 0) {
+            return;
+        }
+        for (;;) {
+            boolean filled;
+            long waitAfter;
+            synchronized (this) {
+                long currentMillis = getCurrentMillis();
+                long time = currentMillis;
+                if (time < lastTime && currentMillis >= reservedFrom) {
+                    // 其他线程预留的毫秒时钟还未追上，等待后重试
+                    observe(currentMillis);
+                    time = ~(lastTime - 1);
+                } else if (time < lastTime) {
+                    if (clockBackwardsPolicy.getStrategy() == ClockBackwardsPolicy.Strategy.BACKUP_WORKER) {
+                        // 不记录本次读取，由generateId识别并统计回拨
+                        break;
+                    }
+                    boolean movedBackwards = observe(currentMillis);
+                    if (movedBackwards) {
+                        metrics.clockBackwards.increment();
+                    }
+                    time = onClockBackwards(currentMillis, movedBackwards);
+                } else {
+                    observe(currentMillis);
+                }
+                filled = time >= 0L;
+                waitAfter = filled ? reserve(dst, off, len, time, currentMillis) : ~time;
+            }
+            if (waitAfter >= 0L) {
+                waiter.awaitAfter(clock, waitAfter);
+            }
+            if (filled) {
+                metrics.issued.add(len);
+                return;
+            }
+        }
+        // 备用机器id的序列独立维护，逐个生成
+        for (int i = off, end = off + len; i < end; i++) {
+            dst[i] = generateId();
+        }
+    }
+
+    /**
+     * 从time开始预留len个连续的序列号写入dst
+     *
+     * @param time          本次使用的时间截，不小于上次生成ID的时间截
+     * @param currentMillis 系统时钟的当前时间
+     * @return 需要等待时钟越过的时间截，不需要等待时返回-1
+     */
+    private long reserve(long[] dst, int off, int len, long time, long currentMillis) {
+        long seq = 0L;
+        if (lastTime == time) {
+            // 同一毫秒内，接着上次的序列继续
+            seq = sequence + 1;
+        }
+
+        for (int i = off, end = off + len; i < end; i++) {
+            if (seq > sequenceMask) {
+                // 毫秒内序列溢出，顺延到下一个毫秒
+                time++;
+                seq = 0L;
+            }
+            dst[i] = layout.compose(time, nodeBits, seq++);
+        }
+        layout.checkTimestamp(time);
+
+        lastTime = time;
+        sequence = seq - 1;
+        if (time > currentMillis) {
+            if (isBorrowing(time, currentMillis) && time - currentMillis <= clockBackwardsPolicy.getToleranceMillis()) {
+                // 允许借用未来的毫秒，不必等待，之后的调用会继续沿用逻辑时间截
+                reservedFrom = Long.MAX_VALUE;
+                return -1L;
+            }
+            // 预留了未来的毫秒，等待时钟追上，保证之后生成的ID不会早于这一批
+            reservedFrom = currentMillis;
+            return time - 1;
+        }
+        reservedFrom = Long.MAX_VALUE;
+        return -1L;
+    }
+
+    /**
+     * 记录本次读取到的系统时钟
+     *
+     * @param currentMillis 系统时钟的当前时间
+     * @return 是否比上次读取到的时间更早，即新发生了一次回拨
+     */
+    private boolean observe(long currentMillis) {
+        boolean movedBackwards = currentMillis < observedMillis;
+        observedMillis = currentMillis;
+        return movedBackwards;
     }
 
     /**
-     * 阻塞到下一个毫秒，直到获得新的时间戳
+     * 时钟回拨时按WAIT/BORROW/FAIL策略决定本次使用的时间截
      *
-     * @param lastTime 上次生成ID的时间截
-     * @return 当前时间戳
+     * @param currentMillis  回拨后的当前时间
+     * @param movedBackwards 是否新发生的回拨，只有新发生的回拨计入统计，时钟追上之前的后续调用不重复计数
+     * @return 本次使用的时间截，不小于上次生成ID的时间截；WAIT策略下返回负数，表示需要等到时钟越过~result之后重试
      */
-    private long waitUntilNextTime(final long lastTime) {
-        long time = getCurrentMillis();
-        while (time <= lastTime) {
-            time = getCurrentMillis();
+    private long onClockBackwards(long currentMillis, boolean movedBackwards) {
+        long offset = lastTime - currentMillis;
+        switch (clockBackwardsPolicy.getStrategy()) {
+            case WAIT:
+                if (offset <= clockBackwardsPolicy.getToleranceMillis()) {
+                    if (movedBackwards) {
+                        clockBackwardsCounters.waits.increment();
+                    }
+                    return ~(lastTime - 1);
+                }
+                break;
+            case BORROW:
+                if (offset <= clockBackwardsPolicy.getToleranceMillis()) {
+                    if (movedBackwards) {
+                        clockBackwardsCounters.borrows.increment();
+                    }
+                    return lastTime;
+                }
+                break;
+            default:
+                break;
         }
-        return time;
+        if (movedBackwards) {
+            clockBackwardsCounters.failures.increment();
+        }
+        //如果当前时间小于上一次ID生成的时间戳，并且超出了容忍范围，应当抛出异常
+        throw new IllegalStateException(String.format(
+                "Clock is moving backwards, last time is %d milliseconds, current time is %d milliseconds", lastTime, currentMillis));
+    }
+
+    /**
+     * 是否正在借用未来的毫秒发号
+     *
+     * @param time          当前使用的逻辑时间截
+     * @param currentMillis 系统时钟的当前时间
+     */
+    private boolean isBorrowing(long time, long currentMillis) {
+        return clockBackwardsPolicy.getStrategy() == ClockBackwardsPolicy.Strategy.BORROW && time > currentMillis;
+    }
+
+    /**
+     * 时钟回拨期间使用备用机器id生成ID，备用机器id拥有独立的时间截和序列
+     *
+     * @param currentMillis  回拨后的当前时间
+     * @param movedBackwards 是否新发生的回拨
+     * @return 生成的ID，负数表示备用机器id的序列已用尽，需要等到时钟越过~result之后重试
+     */
+    private long nextBackupId(long currentMillis, boolean movedBackwards) {
+        if (currentMillis < backupLastTime) {
+            if (movedBackwards) {
+                clockBackwardsCounters.failures.increment();
+            }
+            throw new IllegalStateException(String.format(
+                    "Clock is moving backwards again, last backup time is %d milliseconds, current time is %d milliseconds",
+                    backupLastTime, currentMillis));
+        }
+        if (backupLastTime == currentMillis) {
+            if (backupSequence == sequenceMask) {
+                return ~currentMillis;
+            }
+            backupSequence++;
+        } else {
+            backupSequence = 0;
+        }
+        if (movedBackwards) {
+            clockBackwardsCounters.failovers.increment();
+        }
+        backupLastTime = currentMillis;
+
+        return layout.compose(currentMillis, backupNodeBits, backupSequence);
+    }
+
+    /**
+     * 时钟回拨处理次数统计
+     *
+     * @return 本生成器的统计
+     */
+    public ClockBackwardsCounters getClockBackwardsCounters() {
+        return clockBackwardsCounters;
+    }
+
+    @Override
+    public IdGeneratorMetrics.Snapshot metricsSnapshot() {
+        return metrics.snapshot();
+    }
+
+    /**
+     * 等待时钟前进的次数，同{@link IdGeneratorMetrics.Snapshot#getExhaustionWaits()}
+     */
+    public long getWaitCount() {
+        return metricsSnapshot().getExhaustionWaits();
+    }
+
+    /**
+     * 等待时钟前进的总耗时(纳秒)，同{@link IdGeneratorMetrics.Snapshot#getWaitNanos()}
+     */
+    public long getWaitNanos() {
+        return metricsSnapshot().getWaitNanos();
     }
 
     private long getCurrentMillis() {
-        ZoneId zone = ZoneId.systemDefault();
-        return  LocalDateTime.now().atZone(zone).toInstant().toEpochMilli();
+        return clock.currentMillis();
     }
 
 
-    public static IdVo analysisId(Long snowFlakeId) {
-        long sequence = snowFlakeId & SEQUENCE_MASK;
+    /**
+     * ID的位结构
+     */
+    public SnowflakeLayout getLayout() {
+        return layout;
+    }
+
+    /**
+     * 按默认位结构取出ID中的时间截，不产生任何对象
+     *
+     * @param snowFlakeId 雪花算法生成的ID
+     * @return 时间截(毫秒)
+     */
+    public static long timestampOf(long snowFlakeId) {
+        return SnowflakeLayout.DEFAULT.timestampOf(snowFlakeId);
+    }
 
-        long workId = (snowFlakeId >>> WORKER_ID_LEFT_SHIFT_BITS) & WORKER_ID_MAX_VALUE;
+    /**
+     * 按默认位结构取出ID中的机器id
+     */
+    public static long workerOf(long snowFlakeId) {
+        return SnowflakeLayout.DEFAULT.workerIdOf(snowFlakeId);
+    }
 
-        long datacenterId = (snowFlakeId >>> DATACENTER_ID_LEFT_SHIFT_BITS) & DATACENTER_ID_MAX_VALUE;
+    /**
+     * 按默认位结构取出ID中的数据标识id
+     */
+    public static long datacenterOf(long snowFlakeId) {
+        return SnowflakeLayout.DEFAULT.datacenterIdOf(snowFlakeId);
+    }
 
-        long timestamp = (snowFlakeId >>> TIMESTAMP_LEFT_SHIFT_BITS) + EPOCH;
+    /**
+     * 按默认位结构取出ID中的毫秒内序列
+     */
+    public static long sequenceOf(long snowFlakeId) {
+        return SnowflakeLayout.DEFAULT.sequenceOf(snowFlakeId);
+    }
 
-        IdVo idVo = new IdVo(timestamp, workId, sequence, datacenterId);
+    /**
+     * 按默认位结构计算指定毫秒内可能生成的最小ID，与{@link #maxIdAt(long)}配合可把时间范围查询转为主键范围查询
+     *
+     * @param epochMillis 时间截(毫秒)
+     * @return 最小ID
+     */
+    public static long minIdAt(long epochMillis) {
+        return SnowflakeLayout.DEFAULT.minIdAt(epochMillis);
+    }
 
-        return idVo;
+    /**
+     * 按默认位结构计算指定毫秒内可能生成的最大ID
+     *
+     * @param epochMillis 时间截(毫秒)
+     * @return 最大ID
+     */
+    public static long maxIdAt(long epochMillis) {
+        return SnowflakeLayout.DEFAULT.maxIdAt(epochMillis);
+    }
+
+    /**
+     * 按默认位结构把时间窗口拆分为parts个均衡的ID子区间
+     *
+     * @see SnowflakeLayout#splitRange(long, long, int)
+     */
+    public static List<IdRange> splitRange(long fromMillis, long toMillis, int parts) {
+        return SnowflakeLayout.DEFAULT.splitRange(fromMillis, toMillis, parts);
+    }
+
+    /**
+     * 按默认位结构解析ID
+     *
+     * @param snowFlakeId 雪花算法生成的ID
+     * @return 解析结果
+     */
+    public static IdVo analysisId(Long snowFlakeId) {
+        return analysisId(snowFlakeId, SnowflakeLayout.DEFAULT);
+    }
+
+    /**
+     * 按指定的位结构解析ID
+     *
+     * @param snowFlakeId 雪花算法生成的ID
+     * @param layout      生成该ID时使用的位结构
+     * @return 解析结果
+     */
+    public static IdVo analysisId(long snowFlakeId, SnowflakeLayout layout) {
+        return layout.decode(snowFlakeId);
     }
 }
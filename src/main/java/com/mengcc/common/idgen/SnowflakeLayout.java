@@ -0,0 +1,315 @@
+package com.mengcc.common.idgen;
+
+import com.google.common.base.Preconditions;
+import com.mengcc.common.vo.IdVo;
+
+import java.time.LocalDateTime;
+import java.time.Month;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 雪花算法ID的位结构: 时间截、数据标识id、机器id、毫秒内序列各占的位数以及开始时间截。
+ *
+ * <pre>
+ * 除最高位符号位外，四段位数之和必须为63，例如:
+ *
+ * 默认      41位时间截 - 5位datacenterId - 5位workerId - 12位序列，每节点每毫秒4096个ID，最多1024个节点
+ * 单节点    41位时间截 - 0位datacenterId - 0位workerId - 22位序列，每毫秒约419万个ID
+ * 大规模集群 41位时间截 - 5位datacenterId - 9位workerId - 8位序列，每节点每毫秒256个ID，最多16384个节点
+ *
+ * SnowflakeLayout layout = SnowflakeLayout.builder()
+ *         .timestampBits(41).datacenterIdBits(0).workerIdBits(0).sequenceBits(22)
+ *         .epoch(LocalDateTime.of(2020, 1, 1, 0, 0))
+ *         .build();
+ * </pre>
+ *
+ * 生成与解析必须使用同一个位结构。
+ *
+ * @author zhouzq
+ * @date 2020/4/26
+ */
+public final class SnowflakeLayout {
+
+    /**
+     * 默认的开始时间截，固定为2018年8月1日零点
+     */
+    private static final long DEFAULT_EPOCH = LocalDateTime.of(2018, Month.AUGUST, 1, 0, 0, 0, 0)
+            .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+
+    /**
+     * 默认位结构: 41位时间截、5位数据标识id、5位机器id、12位序列
+     */
+    public static final SnowflakeLayout DEFAULT = builder().build();
+
+    private final int timestampBits;
+
+    private final int datacenterIdBits;
+
+    private final int workerIdBits;
+
+    private final int sequenceBits;
+
+    /**
+     * 时间偏移量(开始时间截)
+     */
+    private final long epoch;
+
+    private final long maxTimestamp;
+
+    private final long maxDatacenterId;
+
+    private final long maxWorkerId;
+
+    private final long sequenceMask;
+
+    private final int workerIdShift;
+
+    private final int datacenterIdShift;
+
+    private final int timestampShift;
+
+    private SnowflakeLayout(Builder builder) {
+        this.timestampBits = builder.timestampBits;
+        this.datacenterIdBits = builder.datacenterIdBits;
+        this.workerIdBits = builder.workerIdBits;
+        this.sequenceBits = builder.sequenceBits;
+        this.epoch = builder.epoch;
+        this.maxTimestamp = -1L ^ (-1L << timestampBits);
+        this.maxDatacenterId = -1L ^ (-1L << datacenterIdBits);
+        this.maxWorkerId = -1L ^ (-1L << workerIdBits);
+        this.sequenceMask = -1L ^ (-1L << sequenceBits);
+        this.workerIdShift = sequenceBits;
+        this.datacenterIdShift = workerIdBits + sequenceBits;
+        this.timestampShift = datacenterIdBits + workerIdBits + sequenceBits;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * 拼接数据标识id与机器id，生成器可以预先计算好，发号时直接或运算
+     *
+     * @param datacenterId 数据标识id
+     * @param workerId     机器id
+     * @return 左移后拼接好的节点位
+     */
+    public long nodeBits(long datacenterId, long workerId) {
+        Preconditions.checkArgument(datacenterId >= 0 && datacenterId <= maxDatacenterId,
+                "datacenter Id can't be greater than %s or less than 0", maxDatacenterId);
+        Preconditions.checkArgument(workerId >= 0L && workerId <= maxWorkerId,
+                "worker Id can't be greater than %s or less than 0", maxWorkerId);
+        return (datacenterId << datacenterIdShift) | (workerId << workerIdShift);
+    }
+
+    /**
+     * 移位并通过或运算拼到一起组成64位的ID
+     *
+     * @param timestamp 时间截(毫秒)
+     * @param nodeBits  {@link #nodeBits(long, long)}的结果
+     * @param sequence  毫秒内序列
+     * @return ID
+     */
+    public long compose(long timestamp, long nodeBits, long sequence) {
+        return ((timestamp - epoch) << timestampShift) | nodeBits | sequence;
+    }
+
+    /**
+     * 检查时间截是否还能用本位结构表示
+     *
+     * @param timestamp 时间截(毫秒)
+     */
+    public void checkTimestamp(long timestamp) {
+        Preconditions.checkState(timestamp >= epoch && timestamp - epoch <= maxTimestamp,
+                "timestamp %s is out of range of the layout, epoch is %s, max timestamp bits is %s", timestamp, epoch, timestampBits);
+    }
+
+    public long timestampOf(long id) {
+        return (id >>> timestampShift) + epoch;
+    }
+
+    public long datacenterIdOf(long id) {
+        return (id >>> datacenterIdShift) & maxDatacenterId;
+    }
+
+    public long workerIdOf(long id) {
+        return (id >>> workerIdShift) & maxWorkerId;
+    }
+
+    public long sequenceOf(long id) {
+        return id & sequenceMask;
+    }
+
+    /**
+     * 指定毫秒内可能生成的最小ID，即节点位和序列全为0
+     *
+     * @param epochMillis 时间截(毫秒)
+     * @return 最小ID
+     */
+    public long minIdAt(long epochMillis) {
+        checkRange(epochMillis);
+        return (epochMillis - epoch) << timestampShift;
+    }
+
+    /**
+     * 指定毫秒内可能生成的最大ID，即节点位和序列全为1
+     *
+     * @param epochMillis 时间截(毫秒)
+     * @return 最大ID
+     */
+    public long maxIdAt(long epochMillis) {
+        checkRange(epochMillis);
+        return ((epochMillis - epoch) << timestampShift) | (-1L ^ (-1L << timestampShift));
+    }
+
+    /**
+     * 把时间窗口[fromMillis, toMillis]对应的ID区间按时间均分为若干个首尾相接的子区间，便于多个线程并行做主键范围扫描。
+     * 时间窗口不足parts毫秒时，按毫秒数拆分。
+     *
+     * @param fromMillis 开始时间(包含)
+     * @param toMillis   结束时间(包含)
+     * @param parts      期望拆分的份数
+     * @return 按ID升序排列的子区间，合起来恰好覆盖[minIdAt(fromMillis), maxIdAt(toMillis)]
+     */
+    public List<IdRange> splitRange(long fromMillis, long toMillis, int parts) {
+        Preconditions.checkArgument(fromMillis <= toMillis, "fromMillis can't be greater than toMillis");
+        Preconditions.checkArgument(parts > 0, "parts must be greater than 0");
+        checkRange(fromMillis);
+        checkRange(toMillis);
+        long span = toMillis - fromMillis + 1;
+        int count = (int) Math.min(parts, span);
+        List<IdRange> ranges = new ArrayList<>(count);
+        long start = fromMillis;
+        for (int i = 1; i <= count; i++) {
+            // 用 span * i / count 计算边界，余数均摊到各个子区间
+            long end = fromMillis + span / count * i + span % count * i / count - 1;
+            ranges.add(new IdRange(minIdAt(start), maxIdAt(end)));
+            start = end + 1;
+        }
+        return ranges;
+    }
+
+    private void checkRange(long epochMillis) {
+        Preconditions.checkArgument(epochMillis >= epoch && epochMillis - epoch <= maxTimestamp,
+                "time %s is out of range of the layout, epoch is %s", epochMillis, epoch);
+    }
+
+    /**
+     * 按本位结构解析ID
+     *
+     * @param id 雪花算法生成的ID
+     * @return 解析结果
+     */
+    public IdVo decode(long id) {
+        return new IdVo(timestampOf(id), workerIdOf(id), sequenceOf(id), datacenterIdOf(id));
+    }
+
+    public int getTimestampBits() {
+        return timestampBits;
+    }
+
+    public int getDatacenterIdBits() {
+        return datacenterIdBits;
+    }
+
+    public int getWorkerIdBits() {
+        return workerIdBits;
+    }
+
+    public int getSequenceBits() {
+        return sequenceBits;
+    }
+
+    public long getEpoch() {
+        return epoch;
+    }
+
+    public long getMaxDatacenterId() {
+        return maxDatacenterId;
+    }
+
+    public long getMaxWorkerId() {
+        return maxWorkerId;
+    }
+
+    public long getSequenceMask() {
+        return sequenceMask;
+    }
+
+    public int getTimestampShift() {
+        return timestampShift;
+    }
+
+    @Override
+    public String toString() {
+        return "SnowflakeLayout{timestampBits=" + timestampBits
+                + ", datacenterIdBits=" + datacenterIdBits
+                + ", workerIdBits=" + workerIdBits
+                + ", sequenceBits=" + sequenceBits
+                + ", epoch=" + epoch + '}';
+    }
+
+    public static final class Builder {
+
+        private int timestampBits = 41;
+
+        private int datacenterIdBits = 5;
+
+        private int workerIdBits = 5;
+
+        private int sequenceBits = 12;
+
+        private long epoch = DEFAULT_EPOCH;
+
+        private Builder() {
+        }
+
+        public Builder timestampBits(int timestampBits) {
+            this.timestampBits = timestampBits;
+            return this;
+        }
+
+        public Builder datacenterIdBits(int datacenterIdBits) {
+            this.datacenterIdBits = datacenterIdBits;
+            return this;
+        }
+
+        public Builder workerIdBits(int workerIdBits) {
+            this.workerIdBits = workerIdBits;
+            return this;
+        }
+
+        public Builder sequenceBits(int sequenceBits) {
+            this.sequenceBits = sequenceBits;
+            return this;
+        }
+
+        /**
+         * @param epochMillis 开始时间截，距1970-01-01T00:00:00Z的毫秒数
+         */
+        public Builder epoch(long epochMillis) {
+            this.epoch = epochMillis;
+            return this;
+        }
+
+        /**
+         * @param dateTime 开始时间，按系统默认时区换算
+         */
+        public Builder epoch(LocalDateTime dateTime) {
+            this.epoch = dateTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            return this;
+        }
+
+        public SnowflakeLayout build() {
+            Preconditions.checkArgument(timestampBits > 0, "timestamp bits must be greater than 0");
+            Preconditions.checkArgument(sequenceBits > 0, "sequence bits must be greater than 0");
+            Preconditions.checkArgument(datacenterIdBits >= 0 && workerIdBits >= 0, "datacenter/worker Id bits can't be less than 0");
+            Preconditions.checkArgument(timestampBits + datacenterIdBits + workerIdBits + sequenceBits == Long.SIZE - 1,
+                    "timestamp, datacenter Id, worker Id and sequence bits must add up to %s", Long.SIZE - 1);
+            Preconditions.checkArgument(epoch >= 0, "epoch can't be less than 0");
+            return new SnowflakeLayout(this);
+        }
+    }
+}
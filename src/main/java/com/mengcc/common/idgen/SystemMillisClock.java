@@ -0,0 +1,20 @@
+package com.mengcc.common.idgen;
+
+/**
+ * 直接读取{@link System#currentTimeMillis()}的时钟，随系统时间(如NTP校时)一起变化
+ *
+ * @author zhouzq
+ * @date 2020/4/18
+ */
+public final class SystemMillisClock implements MillisClock {
+
+    public static final SystemMillisClock INSTANCE = new SystemMillisClock();
+
+    private SystemMillisClock() {
+    }
+
+    @Override
+    public long currentMillis() {
+        return System.currentTimeMillis();
+    }
+}
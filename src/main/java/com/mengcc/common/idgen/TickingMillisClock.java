@@ -0,0 +1,69 @@
+package com.mengcc.common.idgen;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 由后台线程每毫秒刷新一次的时钟，读取时只有一次volatile读。
+ *
+ * <pre>
+ * 适合调用极其频繁、对时间精度要求为毫秒级的场景，代价是常驻一个守护线程，
+ * 且读到的时间最多比真实时间落后约1毫秒。
+ * </pre>
+ *
+ * @author zhouzq
+ * @date 2020/4/18
+ */
+public final class TickingMillisClock implements MillisClock, AutoCloseable {
+
+    private static volatile TickingMillisClock instance;
+
+    private final ScheduledExecutorService ticker;
+
+    private volatile long now;
+
+    public TickingMillisClock() {
+        this.now = System.currentTimeMillis();
+        this.ticker = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "millis-clock-ticker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.ticker.scheduleAtFixedRate(() -> now = System.currentTimeMillis(), 1L, 1L, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 获取全局共享的时钟实例，首次调用时启动后台线程
+     *
+     * @return 共享的时钟实例
+     */
+    public static TickingMillisClock getInstance() {
+        if (instance == null) {
+            synchronized (TickingMillisClock.class) {
+                if (instance == null) {
+                    instance = new TickingMillisClock();
+                }
+            }
+        }
+        return instance;
+    }
+
+    @Override
+    public long currentMillis() {
+        return now;
+    }
+
+    /**
+     * 停止后台刷新线程，之后读取到的时间不再变化; 若关闭的是共享实例，下次{@link #getInstance()}会重新创建
+     */
+    @Override
+    public void close() {
+        synchronized (TickingMillisClock.class) {
+            if (instance == this) {
+                instance = null;
+            }
+        }
+        ticker.shutdownNow();
+    }
+}
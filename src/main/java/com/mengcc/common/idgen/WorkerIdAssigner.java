@@ -0,0 +1,27 @@
+package com.mengcc.common.idgen;
+
+/**
+ * 机器id分配器，保证同时运行的多个实例拿到互不相同的机器id
+ *
+ * <pre>
+ * try (WorkerIdLease lease = assigner.acquire()) {
+ *     IdGenerator idGenerator = new SnowflakeIdGenerator(datacenterId, lease.getWorkerId());
+ *     ...
+ * }
+ * </pre>
+ *
+ * @author zhouzq
+ * @date 2020/4/30
+ * @see InMemoryWorkerIdAssigner
+ * @see FileLockWorkerIdAssigner
+ */
+public interface WorkerIdAssigner {
+
+    /**
+     * 租借一个空闲的机器id
+     *
+     * @return 机器id的租约
+     * @throws com.mengcc.common.exceptions.FrameworkException 没有空闲的机器id
+     */
+    WorkerIdLease acquire();
+}
@@ -0,0 +1,26 @@
+package com.mengcc.common.idgen;
+
+/**
+ * 机器id的租约，持有期间由{@link WorkerIdAssigner}定期心跳续约，关闭后释放机器id
+ *
+ * @author zhouzq
+ * @date 2020/4/30
+ */
+public interface WorkerIdLease extends AutoCloseable {
+
+    /**
+     * 租到的机器id
+     */
+    long getWorkerId();
+
+    /**
+     * 租约是否仍然有效，续约失败后返回false，此时应停止使用该机器id发号
+     */
+    boolean isValid();
+
+    /**
+     * 停止续约并释放机器id
+     */
+    @Override
+    void close();
+}
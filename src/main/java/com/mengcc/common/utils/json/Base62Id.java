@@ -0,0 +1,34 @@
+package com.mengcc.common.utils.json;
+
+import com.fasterxml.jackson.annotation.JacksonAnnotationsInside;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 标记long/Long类型的雪花算法ID字段，JSON中以11位可排序的Base62字符串表示，例如:
+ *
+ * <pre>
+ * public class OrderVo {
+ *     &#64;Base62Id
+ *     private Long id;
+ * }
+ * </pre>
+ *
+ * 对{@link Json#MAPPER}、{@link com.mengcc.common.utils.JacksonUtils#OBJECT_MAPPER}以及任意ObjectMapper都生效，
+ * 未标记的Long字段不受影响。
+ *
+ * @author zhouzq
+ * @date 2020/5/12
+ */
+@Target({ElementType.FIELD, ElementType.METHOD, ElementType.PARAMETER, ElementType.ANNOTATION_TYPE})
+@Retention(RetentionPolicy.RUNTIME)
+@JacksonAnnotationsInside
+@JsonSerialize(using = Base62IdSerializer.class)
+@JsonDeserialize(using = Base62IdDeserializer.class)
+public @interface Base62Id {
+}
@@ -0,0 +1,42 @@
+package com.mengcc.common.utils.json;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.mengcc.common.idgen.Base62IdCodec;
+
+import java.io.IOException;
+
+/**
+ * 把Base62字符串反序列化为雪花算法ID，直接读取解析器内部的字符缓冲区，不创建String。
+ * 为兼容旧客户端，同时接受JSON数值形式的ID。
+ *
+ * @author zhouzq
+ * @date 2020/5/12
+ * @see Base62Id
+ */
+public class Base62IdDeserializer extends StdDeserializer<Long> {
+
+    private static final long serialVersionUID = 1L;
+
+    public Base62IdDeserializer() {
+        super(Long.class);
+    }
+
+    @Override
+    public Long deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+        JsonToken token = p.getCurrentToken();
+        if (token == JsonToken.VALUE_STRING) {
+            try {
+                return Base62IdCodec.decode(p.getTextCharacters(), p.getTextOffset(), p.getTextLength());
+            } catch (IllegalArgumentException e) {
+                return (Long) ctxt.handleWeirdStringValue(Long.class, p.getText(), e.getMessage());
+            }
+        }
+        if (token == JsonToken.VALUE_NUMBER_INT) {
+            return p.getLongValue();
+        }
+        return (Long) ctxt.handleUnexpectedToken(Long.class, p);
+    }
+}
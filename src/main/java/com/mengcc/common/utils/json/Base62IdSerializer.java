@@ -0,0 +1,30 @@
+package com.mengcc.common.utils.json;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+import com.mengcc.common.idgen.Base62IdCodec;
+
+import java.io.IOException;
+
+/**
+ * 把雪花算法ID序列化为11位的Base62字符串，编码直接写入char[]后交给JsonGenerator，不经过中间String
+ *
+ * @author zhouzq
+ * @date 2020/5/12
+ * @see Base62Id
+ */
+public class Base62IdSerializer extends StdSerializer<Long> {
+
+    private static final long serialVersionUID = 1L;
+
+    public Base62IdSerializer() {
+        super(Long.class);
+    }
+
+    @Override
+    public void serialize(Long value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+        char[] buf = new char[Base62IdCodec.ENCODED_LENGTH];
+        gen.writeString(buf, 0, Base62IdCodec.encode(value, buf, 0));
+    }
+}
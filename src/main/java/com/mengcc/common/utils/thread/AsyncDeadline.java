@@ -0,0 +1,42 @@
+package com.mengcc.common.utils.thread;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 按截止时间让未完成的CompletableFuture以TimeoutException完成, 所有future完成后取消定时任务.
+ * 只用一个守护线程, 超时时挂在future上的非异步回调会在该线程中执行, 回调中不要阻塞.
+ *
+ * @author zhouzq
+ * @date 2020/5/26
+ */
+final class AsyncDeadline {
+
+    private static final ScheduledThreadPoolExecutor TIMER;
+
+    static {
+        TIMER = new ScheduledThreadPoolExecutor(1, new NamedThreadFactory("async-deadline", true));
+        TIMER.setRemoveOnCancelPolicy(true);
+    }
+
+    private AsyncDeadline() {
+    }
+
+    static <V> void expireAt(List<CompletableFuture<V>> futures, long deadlineNanos) {
+        if (futures.isEmpty()) {
+            return;
+        }
+        CompletableFuture<?>[] all = futures.toArray(new CompletableFuture<?>[0]);
+        ScheduledFuture<?> timeout = TIMER.schedule(() -> {
+            TimeoutException e = new TimeoutException("tasks are not completed before the deadline");
+            for (CompletableFuture<?> future : all) {
+                future.completeExceptionally(e);
+            }
+        }, deadlineNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        CompletableFuture.allOf(all).whenComplete((v, e) -> timeout.cancel(false));
+    }
+}
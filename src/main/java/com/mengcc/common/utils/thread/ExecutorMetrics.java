@@ -0,0 +1,126 @@
+package com.mengcc.common.utils.thread;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 线程池的运行指标, 由{@link InstrumentedThreadPoolExecutor}在beforeExecute/afterExecute中采集,
+ * 指标导出方通过{@link InstrumentedThreadPoolExecutor#metricsSnapshot()}或{@link ExecutorRegistry#metricsSnapshot()}定期拉取快照.
+ *
+ * @author zhouzq
+ * @date 2020/5/25
+ */
+public final class ExecutorMetrics {
+
+    final LongAdder completed = new LongAdder();
+
+    final LongAdder rejected = new LongAdder();
+
+    /**
+     * 任务从提交到开始执行的等待时间, 统计submit/invokeAll提交的任务和经ContextPropagation包装后execute提交的任务
+     */
+    final LatencyHistogram queueWait = new LatencyHistogram();
+
+    /**
+     * 任务的执行时间
+     */
+    final LatencyHistogram execution = new LatencyHistogram();
+
+    /**
+     * 不可变的指标快照
+     */
+    public static final class Snapshot {
+
+        private final String name;
+
+        private final int poolSize;
+
+        private final int activeThreads;
+
+        private final int queueDepth;
+
+        private final long completed;
+
+        private final long rejected;
+
+        private final LatencyHistogram.Snapshot queueWait;
+
+        private final LatencyHistogram.Snapshot execution;
+
+        Snapshot(String name, int poolSize, int activeThreads, int queueDepth, long completed, long rejected,
+                 LatencyHistogram.Snapshot queueWait, LatencyHistogram.Snapshot execution) {
+            this.name = name;
+            this.poolSize = poolSize;
+            this.activeThreads = activeThreads;
+            this.queueDepth = queueDepth;
+            this.completed = completed;
+            this.rejected = rejected;
+            this.queueWait = queueWait;
+            this.execution = execution;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * 当前线程数
+         */
+        public int getPoolSize() {
+            return poolSize;
+        }
+
+        /**
+         * 正在执行任务的线程数(近似值)
+         */
+        public int getActiveThreads() {
+            return activeThreads;
+        }
+
+        /**
+         * 等待队列中的任务数
+         */
+        public int getQueueDepth() {
+            return queueDepth;
+        }
+
+        /**
+         * 执行完成(包括抛出异常)的任务数
+         */
+        public long getCompleted() {
+            return completed;
+        }
+
+        /**
+         * 被拒绝的任务数
+         */
+        public long getRejected() {
+            return rejected;
+        }
+
+        /**
+         * 排队等待时间的分布(纳秒)
+         */
+        public LatencyHistogram.Snapshot getQueueWait() {
+            return queueWait;
+        }
+
+        /**
+         * 执行时间的分布(纳秒)
+         */
+        public LatencyHistogram.Snapshot getExecution() {
+            return execution;
+        }
+
+        @Override
+        public String toString() {
+            return "ExecutorMetrics{name=" + name
+                    + ", poolSize=" + poolSize
+                    + ", activeThreads=" + activeThreads
+                    + ", queueDepth=" + queueDepth
+                    + ", completed=" + completed
+                    + ", rejected=" + rejected
+                    + ", queueWait=" + queueWait
+                    + ", execution=" + execution + '}';
+        }
+    }
+}
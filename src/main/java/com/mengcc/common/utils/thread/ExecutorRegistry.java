@@ -0,0 +1,147 @@
+package com.mengcc.common.utils.thread;
+
+import com.google.common.base.Preconditions;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 按名称登记的线程池注册表, 线程池在首次获取时按{@link ExecutorSpec}创建, 并发获取时只会创建一个.
+ * 非定时任务线程池均为{@link InstrumentedThreadPoolExecutor}, 可以通过{@link #metricsSnapshot()}取得各线程池的指标.
+ *
+ * <pre>
+ * 内置三个线程池, 可以在首次使用前用同名的声明覆盖:
+ * fixed      50个线程, 无界LinkedBlockingQueue             {@link FixedThreadPoolUtils}
+ * simple     CPU核数+1 ~ CPU核数*2+1个线程, 20个槽位的ArrayBlockingQueue, 非核心线程空闲1秒回收  {@link SimpleThreadPoolUtils}
+ * scheduled  10个线程的定时任务线程池                        {@link ScheduledThreadPoolUtils}
+ * </pre>
+ *
+ * @author zhouzq
+ * @date 2020/5/22
+ */
+@Slf4j
+public final class ExecutorRegistry {
+
+    public static final String FIXED = "fixed";
+
+    public static final String SIMPLE = "simple";
+
+    public static final String SCHEDULED = "scheduled";
+
+    private static final int CPU_COUNT = Runtime.getRuntime().availableProcessors();
+
+    private static final ConcurrentMap<String, ExecutorSpec> SPECS = new ConcurrentHashMap<>();
+
+    private static final ConcurrentMap<String, ThreadPoolExecutor> EXECUTORS = new ConcurrentHashMap<>();
+
+    static {
+        register(ExecutorSpec.builder(FIXED)
+                .corePoolSize(50)
+                .keepAlive(0L, TimeUnit.MILLISECONDS)
+                .queue(ExecutorSpec.QueueType.LINKED, Integer.MAX_VALUE)
+                .build());
+        register(ExecutorSpec.builder(SIMPLE)
+                .corePoolSize(CPU_COUNT + 1)
+                .maximumPoolSize(CPU_COUNT * 2 + 1)
+                .keepAlive(1L, TimeUnit.SECONDS)
+                .queue(ExecutorSpec.QueueType.ARRAY, 20)
+                .build());
+        register(ExecutorSpec.builder(SCHEDULED)
+                .corePoolSize(10)
+                .scheduled(true)
+                .build());
+    }
+
+    private ExecutorRegistry() {
+    }
+
+    /**
+     * 登记线程池声明, 同名的声明会被覆盖
+     *
+     * @param spec 线程池声明
+     * @throws IllegalStateException 同名线程池已经创建时抛出
+     */
+    public static void register(ExecutorSpec spec) {
+        Preconditions.checkNotNull(spec, "spec can't be null");
+        synchronized (SPECS) {
+            Preconditions.checkState(!EXECUTORS.containsKey(spec.getName()),
+                    "executor [%s] has already been created", spec.getName());
+            SPECS.put(spec.getName(), spec);
+        }
+    }
+
+    /**
+     * 获取线程池, 不存在时按声明创建
+     *
+     * @param name 线程池名称
+     * @return 线程池
+     * @throws IllegalArgumentException 没有该名称的声明时抛出
+     */
+    public static ThreadPoolExecutor getExecutor(String name) {
+        ThreadPoolExecutor executor = EXECUTORS.get(name);
+        if (executor != null) {
+            return executor;
+        }
+        synchronized (SPECS) {
+            return EXECUTORS.computeIfAbsent(name, key -> {
+                ExecutorSpec spec = SPECS.get(key);
+                Preconditions.checkArgument(spec != null, "no executor named [%s] has been registered", key);
+                return create(spec);
+            });
+        }
+    }
+
+    /**
+     * 获取已创建的线程池, 不会触发创建
+     *
+     * @param name 线程池名称
+     * @return 尚未创建时返回null
+     */
+    public static ThreadPoolExecutor peekExecutor(String name) {
+        return EXECUTORS.get(name);
+    }
+
+    /**
+     * 线程池的声明
+     *
+     * @param name 线程池名称
+     * @return 没有该名称的声明时返回null
+     */
+    public static ExecutorSpec getSpec(String name) {
+        return SPECS.get(name);
+    }
+
+    /**
+     * 已创建的线程池的指标快照, 定时任务线程池不采集指标
+     *
+     * @return 线程池名称到指标快照的映射
+     */
+    public static Map<String, ExecutorMetrics.Snapshot> metricsSnapshot() {
+        Map<String, ExecutorMetrics.Snapshot> snapshots = new TreeMap<>();
+        EXECUTORS.forEach((name, executor) -> {
+            if (executor instanceof InstrumentedThreadPoolExecutor) {
+                snapshots.put(name, ((InstrumentedThreadPoolExecutor) executor).metricsSnapshot());
+            }
+        });
+        return snapshots;
+    }
+
+    private static ThreadPoolExecutor create(ExecutorSpec spec) {
+        if (log.isDebugEnabled()) {
+            log.debug(">> creating executor {}", spec);
+        }
+        NamedThreadFactory threadFactory = new NamedThreadFactory(spec.getThreadNamePrefix(), spec.isDaemon());
+        if (spec.isScheduled()) {
+            return new ScheduledThreadPoolExecutor(spec.getCorePoolSize(), threadFactory, spec.newRejectedExecutionHandler());
+        }
+        return new InstrumentedThreadPoolExecutor(spec.getName(), spec.getCorePoolSize(), spec.getMaximumPoolSize(),
+                spec.getKeepAliveMillis(), TimeUnit.MILLISECONDS, spec.newQueue(),
+                threadFactory, spec.newRejectedExecutionHandler());
+    }
+}
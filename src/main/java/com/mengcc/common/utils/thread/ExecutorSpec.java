@@ -0,0 +1,279 @@
+package com.mengcc.common.utils.thread;
+
+import com.google.common.base.Preconditions;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 线程池的声明: 名称、核心/最大线程数、空闲超时、队列类型和容量、拒绝策略以及线程命名,
+ * 注册到{@link ExecutorRegistry}后按名称获取.
+ *
+ * <pre>
+ * ExecutorRegistry.register(ExecutorSpec.builder("report")
+ *         .corePoolSize(4).maximumPoolSize(8)
+ *         .queue(ExecutorSpec.QueueType.ARRAY, 200)
+ *         .rejectionPolicy(ExecutorSpec.RejectionPolicy.CALLER_RUNS)
+ *         .build());
+ * </pre>
+ *
+ * @author zhouzq
+ * @date 2020/5/22
+ */
+public final class ExecutorSpec {
+
+    /**
+     * 等待队列类型
+     */
+    public enum QueueType {
+        /**
+         * LinkedBlockingQueue, 容量为{@link Integer#MAX_VALUE}时为无界队列, 此时最大线程数不起作用
+         */
+        LINKED,
+        /**
+         * ArrayBlockingQueue, 有界队列
+         */
+        ARRAY,
+        /**
+         * SynchronousQueue, 不排队, 没有空闲线程时直接创建线程或拒绝
+         */
+        SYNCHRONOUS
+    }
+
+    /**
+     * 队列已满且线程数达到最大值时的拒绝策略
+     */
+    public enum RejectionPolicy {
+        /**
+         * 抛出RejectedExecutionException
+         */
+        ABORT,
+        /**
+         * 由提交任务的线程执行
+         */
+        CALLER_RUNS,
+        /**
+         * 丢弃该任务
+         */
+        DISCARD,
+        /**
+         * 丢弃队列中最早的任务后重新提交
+         */
+        DISCARD_OLDEST
+    }
+
+    private final String name;
+
+    private final int corePoolSize;
+
+    private final int maximumPoolSize;
+
+    private final long keepAliveMillis;
+
+    private final QueueType queueType;
+
+    private final int queueCapacity;
+
+    private final RejectionPolicy rejectionPolicy;
+
+    private final String threadNamePrefix;
+
+    private final boolean daemon;
+
+    private final boolean scheduled;
+
+    private ExecutorSpec(Builder builder) {
+        this.name = builder.name;
+        this.corePoolSize = builder.corePoolSize;
+        this.maximumPoolSize = builder.maximumPoolSize;
+        this.keepAliveMillis = builder.keepAliveMillis;
+        this.queueType = builder.queueType;
+        this.queueCapacity = builder.queueCapacity;
+        this.rejectionPolicy = builder.rejectionPolicy;
+        this.threadNamePrefix = builder.threadNamePrefix == null ? builder.name : builder.threadNamePrefix;
+        this.daemon = builder.daemon;
+        this.scheduled = builder.scheduled;
+    }
+
+    /**
+     * @param name 线程池名称, 默认也作为线程名前缀
+     */
+    public static Builder builder(String name) {
+        return new Builder(name);
+    }
+
+    BlockingQueue<Runnable> newQueue() {
+        switch (queueType) {
+            case ARRAY:
+                return new ArrayBlockingQueue<>(queueCapacity);
+            case SYNCHRONOUS:
+                return new SynchronousQueue<>();
+            default:
+                return new LinkedBlockingQueue<>(queueCapacity);
+        }
+    }
+
+    RejectedExecutionHandler newRejectedExecutionHandler() {
+        switch (rejectionPolicy) {
+            case CALLER_RUNS:
+                return new ThreadPoolExecutor.CallerRunsPolicy();
+            case DISCARD:
+                return new ThreadPoolExecutor.DiscardPolicy();
+            case DISCARD_OLDEST:
+                return new ThreadPoolExecutor.DiscardOldestPolicy();
+            default:
+                return new ThreadPoolExecutor.AbortPolicy();
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getCorePoolSize() {
+        return corePoolSize;
+    }
+
+    public int getMaximumPoolSize() {
+        return maximumPoolSize;
+    }
+
+    public long getKeepAliveMillis() {
+        return keepAliveMillis;
+    }
+
+    public QueueType getQueueType() {
+        return queueType;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public RejectionPolicy getRejectionPolicy() {
+        return rejectionPolicy;
+    }
+
+    public String getThreadNamePrefix() {
+        return threadNamePrefix;
+    }
+
+    public boolean isDaemon() {
+        return daemon;
+    }
+
+    /**
+     * 是否为定时任务线程池(ScheduledThreadPoolExecutor), 此时只使用核心线程数、拒绝策略和线程命名
+     */
+    public boolean isScheduled() {
+        return scheduled;
+    }
+
+    @Override
+    public String toString() {
+        return "ExecutorSpec{name=" + name
+                + ", corePoolSize=" + corePoolSize
+                + ", maximumPoolSize=" + maximumPoolSize
+                + ", keepAliveMillis=" + keepAliveMillis
+                + ", queueType=" + queueType
+                + ", queueCapacity=" + queueCapacity
+                + ", rejectionPolicy=" + rejectionPolicy
+                + ", threadNamePrefix=" + threadNamePrefix
+                + ", daemon=" + daemon
+                + ", scheduled=" + scheduled + '}';
+    }
+
+    public static final class Builder {
+
+        private final String name;
+
+        private int corePoolSize = Runtime.getRuntime().availableProcessors();
+
+        private int maximumPoolSize = -1;
+
+        private long keepAliveMillis = 60000L;
+
+        private QueueType queueType = QueueType.LINKED;
+
+        private int queueCapacity = Integer.MAX_VALUE;
+
+        private RejectionPolicy rejectionPolicy = RejectionPolicy.ABORT;
+
+        private String threadNamePrefix;
+
+        private boolean daemon;
+
+        private boolean scheduled;
+
+        private Builder(String name) {
+            this.name = Preconditions.checkNotNull(name, "name can't be null");
+        }
+
+        public Builder corePoolSize(int corePoolSize) {
+            this.corePoolSize = corePoolSize;
+            return this;
+        }
+
+        /**
+         * 不设置时与核心线程数相同
+         */
+        public Builder maximumPoolSize(int maximumPoolSize) {
+            this.maximumPoolSize = maximumPoolSize;
+            return this;
+        }
+
+        public Builder keepAlive(long keepAlive, TimeUnit unit) {
+            this.keepAliveMillis = unit.toMillis(keepAlive);
+            return this;
+        }
+
+        /**
+         * @param queueType     队列类型
+         * @param queueCapacity 队列容量, SYNCHRONOUS时忽略
+         */
+        public Builder queue(QueueType queueType, int queueCapacity) {
+            this.queueType = Preconditions.checkNotNull(queueType, "queueType can't be null");
+            this.queueCapacity = queueCapacity;
+            return this;
+        }
+
+        public Builder rejectionPolicy(RejectionPolicy rejectionPolicy) {
+            this.rejectionPolicy = Preconditions.checkNotNull(rejectionPolicy, "rejectionPolicy can't be null");
+            return this;
+        }
+
+        /**
+         * 线程名前缀, 线程名为"前缀-序号", 默认为线程池名称
+         */
+        public Builder threadNamePrefix(String threadNamePrefix) {
+            this.threadNamePrefix = threadNamePrefix;
+            return this;
+        }
+
+        public Builder daemon(boolean daemon) {
+            this.daemon = daemon;
+            return this;
+        }
+
+        public Builder scheduled(boolean scheduled) {
+            this.scheduled = scheduled;
+            return this;
+        }
+
+        public ExecutorSpec build() {
+            if (maximumPoolSize < 0) {
+                maximumPoolSize = corePoolSize;
+            }
+            Preconditions.checkArgument(corePoolSize > 0, "core pool size must be greater than 0");
+            Preconditions.checkArgument(maximumPoolSize >= corePoolSize, "maximum pool size can't be less than core pool size");
+            Preconditions.checkArgument(keepAliveMillis >= 0, "keep alive can't be less than 0");
+            Preconditions.checkArgument(queueType == QueueType.SYNCHRONOUS || queueCapacity > 0, "queue capacity must be greater than 0");
+            return new ExecutorSpec(this);
+        }
+    }
+}
@@ -1,61 +1,43 @@
 package com.mengcc.common.utils.thread;
 
-import org.apache.poi.ss.formula.functions.T;
+import com.mengcc.common.context.ContextPropagation;
 
 import java.util.Objects;
-import java.util.concurrent.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
 
 /**
  * @author zhouzq
  * @date 2019/8/13
- * @desc 固定大小线程池100个
+ * @desc 固定大小线程池, 对应{@link ExecutorRegistry#FIXED}, 默认50个线程
  */
 public class FixedThreadPoolUtils implements ThreadPoolUtils {
 
-    /**
-     *  线程池的对象
-     */
-    private ThreadPoolExecutor executor;
-
-    /**
-     * 固定大小
-     */
-    private static final int nThreads = 50;
+    private static final FixedThreadPoolUtils threadPool = new FixedThreadPoolUtils();
 
     private FixedThreadPoolUtils() {
     }
 
-    private static FixedThreadPoolUtils threadPool;
     /**
      * 线程池大小
      * @return
      */
-    public synchronized static FixedThreadPoolUtils getInstance() {
-        if (threadPool == null) {
-            threadPool = new FixedThreadPoolUtils();
-        }
+    public static FixedThreadPoolUtils getInstance() {
         return threadPool;
     }
 
+    /**
+     * 线程池的对象, 首次使用时由{@link ExecutorRegistry}创建
+     */
+    private ThreadPoolExecutor executor() {
+        return ExecutorRegistry.getExecutor(ExecutorRegistry.FIXED);
+    }
+
     @Override
     public void execute(Runnable r) {
-        if (executor == null) {
-            /**
-             * corePoolSize:核心线程数
-             * maximumPoolSize：线程池所容纳最大线程数(workQueue队列满了之后才开启)
-             * keepAliveTime：非核心线程闲置时间超时时长
-             * unit：keepAliveTime的单位
-             * workQueue：等待队列，存储还未执行的任务
-             * threadFactory：线程创建的工厂
-             * handler：异常处理机制
-             *
-             */
-            executor = new ThreadPoolExecutor(nThreads, nThreads,
-                    0L, TimeUnit.MILLISECONDS,
-                    new LinkedBlockingQueue<>());
-        }
-        // 把一个任务丢到了线程池中
-        executor.execute(r);
+        // 把一个任务丢到了线程池中, 同时传递当前线程的上下文
+        executor().execute(ContextPropagation.runnable(r));
     }
 
     /**
@@ -64,24 +46,9 @@ public class FixedThreadPoolUtils implements ThreadPoolUtils {
      * @return
      */
     @Override
-    public Future<T> submit(Callable<T> r) {
-        if (executor == null) {
-            /**
-             * corePoolSize:核心线程数
-             * maximumPoolSize：线程池所容纳最大线程数(workQueue队列满了之后才开启)
-             * keepAliveTime：非核心线程闲置时间超时时长
-             * unit：keepAliveTime的单位
-             * workQueue：等待队列，存储还未执行的任务
-             * threadFactory：线程创建的工厂
-             * handler：异常处理机制
-             *
-             */
-            executor = new ThreadPoolExecutor(nThreads, nThreads,
-                    0L, TimeUnit.MICROSECONDS, new ArrayBlockingQueue<>(20),
-                    Executors.defaultThreadFactory(), new ThreadPoolExecutor.AbortPolicy());
-        }
-        // 把一个任务丢到了线程池中
-        return executor.submit(r);
+    public <V> Future<V> submit(Callable<V> r) {
+        // 把一个任务丢到了线程池中, 同时传递当前线程的上下文
+        return executor().submit(ContextPropagation.callable(r));
     }
 
     /**
@@ -90,8 +57,10 @@ public class FixedThreadPoolUtils implements ThreadPoolUtils {
      */
     @Override
     public void cancel(Runnable r) {
-        if (r != null) {
-            executor.getQueue().remove(r);
+        ThreadPoolExecutor executor = ExecutorRegistry.peekExecutor(ExecutorRegistry.FIXED);
+        if (r != null && executor != null) {
+            // 队列中的任务已被包装, 按原始任务匹配
+            executor.getQueue().removeIf(task -> task == r || InstrumentedThreadPoolExecutor.unwrap(task) == r);
         }
     }
 
@@ -101,6 +70,7 @@ public class FixedThreadPoolUtils implements ThreadPoolUtils {
      * @return
      */
     public int taskSize(){
+        ThreadPoolExecutor executor = ExecutorRegistry.peekExecutor(ExecutorRegistry.FIXED);
         return Objects.isNull(executor) ? 0 : executor.getActiveCount() + executor.getQueue().size() ;
     }
 
@@ -108,6 +78,7 @@ public class FixedThreadPoolUtils implements ThreadPoolUtils {
      * 执行完任务关闭
      */
     public void shutdown(){
+        ThreadPoolExecutor executor = ExecutorRegistry.peekExecutor(ExecutorRegistry.FIXED);
         if (Objects.nonNull(executor)) {
             executor.shutdown();
         }
@@ -117,6 +88,7 @@ public class FixedThreadPoolUtils implements ThreadPoolUtils {
      * 立刻关闭
      */
     public void showdownNow() {
+        ThreadPoolExecutor executor = ExecutorRegistry.peekExecutor(ExecutorRegistry.FIXED);
         if (Objects.nonNull(executor)) {
             executor.shutdownNow();
         }
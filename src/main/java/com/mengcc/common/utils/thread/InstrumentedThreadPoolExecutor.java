@@ -0,0 +1,121 @@
+package com.mengcc.common.utils.thread;
+
+import com.mengcc.common.context.ContextPropagation;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 采集运行指标的线程池: beforeExecute中记录开始时间, afterExecute中记录执行时间和完成数, 拒绝策略外包一层计数.
+ * 指标见{@link ExecutorMetrics}.
+ * <p>
+ * submit/invokeAll提交的任务由{@link #newTaskFor(Callable)}创建, 创建时记录提交时间, 开始执行时据此记录排队等待时间;
+ * execute提交的任务原样进入等待队列, 经{@link ContextPropagation#runnable(Runnable)}包装过的(各线程池视图的execute、
+ * supplyAsync等都会包装)以包装时间作为提交时间记录排队等待时间, 没有包装过的只记录执行时间.
+ * 等待队列、拒绝策略和afterExecute看到的都是提交的原始任务, {@link #remove(Runnable)}和{@link #purge()}照常可用.
+ *
+ * @author zhouzq
+ * @date 2020/5/25
+ */
+public class InstrumentedThreadPoolExecutor extends ThreadPoolExecutor {
+
+    /**
+     * 工作线程当前任务的开始时间(纳秒)
+     */
+    private static final ThreadLocal<long[]> STARTED_AT = ThreadLocal.withInitial(() -> new long[1]);
+
+    private final String name;
+
+    private final ExecutorMetrics metrics;
+
+    public InstrumentedThreadPoolExecutor(String name, int corePoolSize, int maximumPoolSize, long keepAliveTime, TimeUnit unit,
+                                          BlockingQueue<Runnable> workQueue, ThreadFactory threadFactory,
+                                          RejectedExecutionHandler handler) {
+        this(name, corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory, handler, new ExecutorMetrics());
+    }
+
+    private InstrumentedThreadPoolExecutor(String name, int corePoolSize, int maximumPoolSize, long keepAliveTime, TimeUnit unit,
+                                           BlockingQueue<Runnable> workQueue, ThreadFactory threadFactory,
+                                           RejectedExecutionHandler handler, ExecutorMetrics metrics) {
+        super(corePoolSize, maximumPoolSize, keepAliveTime, unit, workQueue, threadFactory, (r, executor) -> {
+            metrics.rejected.increment();
+            handler.rejectedExecution(r, executor);
+        });
+        this.name = name;
+        this.metrics = metrics;
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+        return new TimedFutureTask<>(runnable, value);
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+        return new TimedFutureTask<>(callable);
+    }
+
+    @Override
+    protected void beforeExecute(Thread t, Runnable r) {
+        super.beforeExecute(t, r);
+        long now = System.nanoTime();
+        STARTED_AT.get()[0] = now;
+        if (r instanceof TimedFutureTask) {
+            metrics.queueWait.record(now - ((TimedFutureTask<?>) r).submittedAt);
+        } else if (ContextPropagation.unwrap(r) != r) {
+            metrics.queueWait.record(now - ContextPropagation.wrappedAt(r));
+        }
+    }
+
+    @Override
+    protected void afterExecute(Runnable r, Throwable t) {
+        metrics.execution.record(System.nanoTime() - STARTED_AT.get()[0]);
+        metrics.completed.increment();
+        super.afterExecute(r, t);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * 当前指标的快照
+     */
+    public ExecutorMetrics.Snapshot metricsSnapshot() {
+        return new ExecutorMetrics.Snapshot(name, getPoolSize(), getActiveCount(), getQueue().size(),
+                metrics.completed.sum(), metrics.rejected.sum(),
+                metrics.queueWait.snapshot(), metrics.execution.snapshot());
+    }
+
+    /**
+     * 去掉上下文传递包装, 取出提交时的原始任务
+     *
+     * @param task 等待队列中的任务
+     * @return 原始任务
+     */
+    public static Runnable unwrap(Runnable task) {
+        return ContextPropagation.unwrap(task);
+    }
+
+    /**
+     * 记录提交时间的FutureTask
+     */
+    private static final class TimedFutureTask<T> extends FutureTask<T> {
+
+        private final long submittedAt = System.nanoTime();
+
+        private TimedFutureTask(Callable<T> callable) {
+            super(callable);
+        }
+
+        private TimedFutureTask(Runnable runnable, T result) {
+            super(runnable, result);
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.mengcc.common.utils.thread;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 低开销的耗时直方图, 按2的幂划分区间, 每个区间再等分为4个子区间, 相对误差不超过25%.
+ * 每个子区间是一个LongAdder, 多线程记录时不会竞争同一个计数器.
+ *
+ * @author zhouzq
+ * @date 2020/5/25
+ */
+public final class LatencyHistogram {
+
+    /**
+     * 每个2的幂区间再划分的子区间位数
+     */
+    private static final int SUB_BUCKET_BITS = 2;
+
+    private static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+
+    private static final int BUCKET_COUNT = (Long.SIZE - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT;
+
+    private final LongAdder[] buckets = new LongAdder[BUCKET_COUNT];
+
+    private final LongAdder count = new LongAdder();
+
+    private final LongAdder sum = new LongAdder();
+
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0L);
+
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * 记录一次耗时
+     *
+     * @param nanos 耗时(纳秒), 小于0时按0记录
+     */
+    public void record(long nanos) {
+        long value = Math.max(0L, nanos);
+        buckets[indexOf(value)].increment();
+        count.increment();
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    public Snapshot snapshot() {
+        long[] counts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] = buckets[i].sum();
+        }
+        return new Snapshot(counts, count.sum(), sum.sum(), max.get());
+    }
+
+    /**
+     * 小于4的值各占一个区间, 其余按最高位所在的2的幂加上其后2位确定子区间
+     */
+    static int indexOf(long value) {
+        if (value < SUB_BUCKET_COUNT) {
+            return (int) value;
+        }
+        int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKET_COUNT - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKET_COUNT + sub;
+    }
+
+    /**
+     * 区间的上界(包含)
+     */
+    static long upperBoundOf(int index) {
+        if (index < SUB_BUCKET_COUNT) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKET_COUNT + SUB_BUCKET_BITS - 1;
+        long sub = index % SUB_BUCKET_COUNT;
+        long lower = (1L << exponent) + (sub << (exponent - SUB_BUCKET_BITS));
+        long upper = lower + (1L << (exponent - SUB_BUCKET_BITS)) - 1;
+        return upper < 0 ? Long.MAX_VALUE : upper;
+    }
+
+    /**
+     * 不可变的直方图快照, 各计数器分别读取, 彼此之间不保证是同一时刻的值
+     */
+    public static final class Snapshot {
+
+        private final long[] counts;
+
+        private final long count;
+
+        private final long sum;
+
+        private final long max;
+
+        private Snapshot(long[] counts, long count, long sum, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * 耗时总和(纳秒)
+         */
+        public long getSum() {
+            return sum;
+        }
+
+        /**
+         * 最大耗时(纳秒)
+         */
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * 平均耗时(纳秒)
+         */
+        public double getMean() {
+            return count == 0 ? 0D : (double) sum / count;
+        }
+
+        /**
+         * 百分位耗时(纳秒), 取所在区间的上界, 不超过最大耗时
+         *
+         * @param percentile 百分位, 取值[0, 100]
+         */
+        public long getPercentile(double percentile) {
+            long total = 0L;
+            for (long c : counts) {
+                total += c;
+            }
+            if (total == 0L) {
+                return 0L;
+            }
+            long rank = Math.max(1L, (long) Math.ceil(total * percentile / 100D));
+            long seen = 0L;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(upperBoundOf(i), max);
+                }
+            }
+            return max;
+        }
+
+        @Override
+        public String toString() {
+            return "{count=" + count
+                    + ", meanNanos=" + (long) getMean()
+                    + ", p50=" + getPercentile(50)
+                    + ", p90=" + getPercentile(90)
+                    + ", p99=" + getPercentile(99)
+                    + ", max=" + max + '}';
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.mengcc.common.utils.thread;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 按"前缀-序号"命名线程的线程工厂
+ *
+ * @author zhouzq
+ * @date 2020/5/22
+ */
+public class NamedThreadFactory implements ThreadFactory {
+
+    private final String prefix;
+
+    private final boolean daemon;
+
+    private final AtomicInteger sequence = new AtomicInteger();
+
+    public NamedThreadFactory(String prefix, boolean daemon) {
+        this.prefix = prefix;
+        this.daemon = daemon;
+    }
+
+    @Override
+    public Thread newThread(Runnable r) {
+        Thread thread = new Thread(r, prefix + "-" + sequence.incrementAndGet());
+        thread.setDaemon(daemon);
+        if (thread.getPriority() != Thread.NORM_PRIORITY) {
+            thread.setPriority(Thread.NORM_PRIORITY);
+        }
+        return thread;
+    }
+}
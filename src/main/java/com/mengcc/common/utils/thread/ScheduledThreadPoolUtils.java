@@ -1,39 +1,32 @@
 package com.mengcc.common.utils.thread;
 
-import org.apache.poi.ss.formula.functions.T;
+import com.mengcc.common.context.ContextPropagation;
 
 import java.util.concurrent.Callable;
 import java.util.concurrent.Future;
-import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.ThreadPoolExecutor;
 
 /**
  * @author zhouzq
  * @date 2019/8/13
- * @desc 定时任务线程池
+ * @desc 定时任务线程池, 对应{@link ExecutorRegistry#SCHEDULED}, 默认10个线程
  */
 public class ScheduledThreadPoolUtils implements ThreadPoolUtils {
 
-    /**
-     *  线程池的对象
-     */
-    private ThreadPoolExecutor executor;
-
-    private int nThread = 10;
+    private static final ScheduledThreadPoolUtils threadPool = new ScheduledThreadPoolUtils();
 
     private ScheduledThreadPoolUtils() {
     }
 
-    private static ScheduledThreadPoolUtils threadPool;
+    public static ScheduledThreadPoolUtils getInstance() {
+        return threadPool;
+    }
+
     /**
-     * 线程池大小
-     * @return
+     * 线程池的对象, 首次使用时由{@link ExecutorRegistry}创建
      */
-    public synchronized static ScheduledThreadPoolUtils getInstance() {
-        if (threadPool == null) {
-            threadPool = new ScheduledThreadPoolUtils();
-        }
-        return threadPool;
+    private ThreadPoolExecutor executor() {
+        return ExecutorRegistry.getExecutor(ExecutorRegistry.SCHEDULED);
     }
 
     /**
@@ -42,21 +35,8 @@ public class ScheduledThreadPoolUtils implements ThreadPoolUtils {
      */
     @Override
     public void execute(Runnable r) {
-        if (executor == null) {
-            /**
-             * corePoolSize:核心线程数
-             * maximumPoolSize：线程池所容纳最大线程数(workQueue队列满了之后才开启)
-             * keepAliveTime：非核心线程闲置时间超时时长
-             * unit：keepAliveTime的单位
-             * workQueue：等待队列，存储还未执行的任务
-             * threadFactory：线程创建的工厂
-             * handler：异常处理机制
-             *
-             */
-            executor = new ScheduledThreadPoolExecutor(nThread);
-        }
-        // 把一个任务丢到了线程池中
-        executor.execute(r);
+        // 把一个任务丢到了线程池中, 同时传递当前线程的上下文
+        executor().execute(ContextPropagation.runnable(r));
     }
 
     /**
@@ -65,22 +45,9 @@ public class ScheduledThreadPoolUtils implements ThreadPoolUtils {
      * @return
      */
     @Override
-    public Future<T> submit(Callable<T> r) {
-        if (executor == null) {
-            /**
-             * corePoolSize:核心线程数
-             * maximumPoolSize：线程池所容纳最大线程数(workQueue队列满了之后才开启)
-             * keepAliveTime：非核心线程闲置时间超时时长
-             * unit：keepAliveTime的单位
-             * workQueue：等待队列，存储还未执行的任务
-             * threadFactory：线程创建的工厂
-             * handler：异常处理机制
-             *
-             */
-            executor = new ScheduledThreadPoolExecutor(nThread);
-        }
-        // 把一个任务丢到了线程池中
-        return executor.submit(r);
+    public <V> Future<V> submit(Callable<V> r) {
+        // 把一个任务丢到了线程池中, 同时传递当前线程的上下文
+        return executor().submit(ContextPropagation.callable(r));
     }
 
     /**
@@ -89,8 +56,10 @@ public class ScheduledThreadPoolUtils implements ThreadPoolUtils {
      */
     @Override
     public void cancel(Runnable r) {
-        if (r != null) {
-            executor.getQueue().remove(r);
+        ThreadPoolExecutor executor = ExecutorRegistry.peekExecutor(ExecutorRegistry.SCHEDULED);
+        if (r != null && executor != null) {
+            // 队列中的任务已被包装, 按原始任务匹配
+            executor.getQueue().removeIf(task -> task == r || InstrumentedThreadPoolExecutor.unwrap(task) == r);
         }
     }
 }
@@ -1,11 +1,28 @@
 package com.mengcc.common.utils.thread;
 
-import org.apache.poi.ss.formula.functions.T;
+import com.google.common.base.Preconditions;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 /**
+ * 线程池基类
+ *
+ * <pre>
+ * 异步方法返回的CompletableFuture由线程池中的线程完成, 任务同样会传递提交线程的上下文.
+ * 后续的异步阶段默认在ForkJoinPool.commonPool()中执行, 需要留在本线程池时把execute作为Executor传入:
+ *
+ * ThreadPoolUtils pool = FixedThreadPoolUtils.getInstance();
+ * CompletableFuture&lt;User&gt; user = pool.supplyAsync(() -&gt; userService.get(id));
+ * CompletableFuture&lt;Order&gt; order = pool.supplyAsync(() -&gt; orderService.get(id));
+ * user.thenCombineAsync(order, this::merge, pool::execute);
+ * </pre>
+ *
  * @author zhouzq
  * @date 2019/8/13
  * @desc 线程池基类
@@ -14,7 +31,76 @@ public interface ThreadPoolUtils {
 
     void execute(Runnable r);
 
-    Future<T> submit(Callable<T> r);
+    <V> Future<V> submit(Callable<V> r);
 
     void cancel(Runnable r);
+
+    /**
+     * 异步执行有返回结果的任务, 线程池拒绝时抛出RejectedExecutionException.
+     * 返回的future在任务开始前被取消或超时完成时, 任务不再执行; 已开始的任务不会被中断.
+     *
+     * @param task 任务, 抛出的异常会使future异常完成
+     * @return 任务结果
+     */
+    default <V> CompletableFuture<V> supplyAsync(Callable<V> task) {
+        Preconditions.checkNotNull(task, "task can't be null");
+        CompletableFuture<V> future = new CompletableFuture<>();
+        execute(() -> {
+            if (future.isDone()) {
+                return;
+            }
+            try {
+                future.complete(task.call());
+            } catch (Throwable e) {
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * 异步执行无返回结果的任务, 语义同{@link #supplyAsync(Callable)}
+     *
+     * @param task 任务
+     * @return 任务完成时以null完成
+     */
+    default CompletableFuture<Void> runAsync(Runnable task) {
+        Preconditions.checkNotNull(task, "task can't be null");
+        return supplyAsync(() -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * 异步执行一批任务, 不阻塞调用线程. 到达截止时间仍未完成的future以TimeoutException异常完成,
+     * 尚未开始的任务不再执行, 已开始的任务不会被中断.
+     *
+     * <pre>
+     * List&lt;CompletableFuture&lt;V&gt;&gt; futures = pool.invokeAll(tasks, 200, TimeUnit.MILLISECONDS);
+     * CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).whenComplete(...);
+     * </pre>
+     *
+     * @param tasks   任务
+     * @param timeout 从调用时开始计算的超时时间
+     * @param unit    超时时间的单位
+     * @return 与tasks顺序一致的future
+     */
+    default <V> List<CompletableFuture<V>> invokeAll(Collection<? extends Callable<V>> tasks, long timeout, TimeUnit unit) {
+        Preconditions.checkNotNull(tasks, "tasks can't be null");
+        Preconditions.checkNotNull(unit, "unit can't be null");
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        List<CompletableFuture<V>> futures = new ArrayList<>(tasks.size());
+        try {
+            for (Callable<V> task : tasks) {
+                futures.add(supplyAsync(task));
+            }
+        } catch (RuntimeException e) {
+            // 部分任务被拒绝时, 已提交的任务不再执行
+            futures.forEach(future -> future.completeExceptionally(e));
+            throw e;
+        }
+        AsyncDeadline.expireAt(futures, deadline);
+        return futures;
+    }
 }
@@ -0,0 +1,105 @@
+package com.mengcc.common.utils.thread;
+
+import com.mengcc.common.context.ContextPropagation;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * @author zhouzq
+ * @date 2020/5/27
+ * @desc 适合阻塞I/O任务(如HttpClientUtils调用)的线程池, Java 21及以上每个任务一个虚拟线程, 并发数不受线程数限制;
+ * 更早的JVM上退回到{@link #FALLBACK_THREADS}个守护线程的平台线程池, 超出的任务排队等待.
+ * 虚拟线程中不要在synchronized块内做阻塞I/O, 否则会占住载体线程.
+ */
+public class VirtualThreadPoolUtils implements ThreadPoolUtils {
+
+    public static final String NAME = "virtual";
+
+    /**
+     * 不支持虚拟线程时平台线程池的线程数
+     */
+    public static final int FALLBACK_THREADS = 200;
+
+    private static final VirtualThreadPoolUtils threadPool = new VirtualThreadPoolUtils();
+
+    private VirtualThreadPoolUtils() {
+    }
+
+    public static VirtualThreadPoolUtils getInstance() {
+        return threadPool;
+    }
+
+    /**
+     * 当前JVM是否使用虚拟线程
+     */
+    public static boolean isVirtual() {
+        return VirtualThreads.isSupported();
+    }
+
+    /**
+     * 执行器, 首次使用时创建
+     */
+    private ExecutorService executor() {
+        return Holder.EXECUTOR;
+    }
+
+    /**
+     * 开启一个无返回结果的线程
+     * @param r
+     */
+    @Override
+    public void execute(Runnable r) {
+        // 把一个任务丢到了线程池中, 同时传递当前线程的上下文
+        executor().execute(ContextPropagation.runnable(r));
+    }
+
+    /**
+     * 开启一个有返回结果的线程
+     * @param r
+     * @return
+     */
+    @Override
+    public <V> Future<V> submit(Callable<V> r) {
+        // 把一个任务丢到了线程池中, 同时传递当前线程的上下文
+        return executor().submit(ContextPropagation.callable(r));
+    }
+
+    /**
+     * 把任务移除等待队列, 虚拟线程没有等待队列, 任务提交后立即开始执行
+     * @param r
+     */
+    @Override
+    public void cancel(Runnable r) {
+        ExecutorService executor = executor();
+        if (r != null && executor instanceof ThreadPoolExecutor) {
+            // 队列中的任务已被包装, 按原始任务匹配
+            ((ThreadPoolExecutor) executor).getQueue().removeIf(task -> task == r || InstrumentedThreadPoolExecutor.unwrap(task) == r);
+        }
+    }
+
+    /**
+     * 退回到平台线程池时的指标快照
+     *
+     * @return 使用虚拟线程时返回null
+     */
+    public ExecutorMetrics.Snapshot metricsSnapshot() {
+        ExecutorService executor = executor();
+        return executor instanceof InstrumentedThreadPoolExecutor
+                ? ((InstrumentedThreadPoolExecutor) executor).metricsSnapshot() : null;
+    }
+
+    /**
+     * 执行完任务关闭
+     */
+    public void shutdown() {
+        executor().shutdown();
+    }
+
+    private static final class Holder {
+
+        private static final ExecutorService EXECUTOR = VirtualThreads.newThreadPerTaskExecutor(NAME, FALLBACK_THREADS);
+    }
+}
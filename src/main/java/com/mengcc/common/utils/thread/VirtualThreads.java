@@ -0,0 +1,40 @@
+package com.mengcc.common.utils.thread;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每个任务一个虚拟线程的执行器. 本类是Java 21以下的实现, 退回到有界的平台线程池;
+ * Java 21及以上加载jar包META-INF/versions/21下的同名类(源码在src/main/java21), 使用虚拟线程.
+ * 两个版本的非私有成员必须保持一致.
+ *
+ * @author zhouzq
+ * @date 2020/5/27
+ */
+final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * 当前JVM是否使用虚拟线程
+     */
+    static boolean isSupported() {
+        return false;
+    }
+
+    /**
+     * @param name            线程名前缀, 同时作为退回的线程池的指标名称
+     * @param fallbackThreads 不支持虚拟线程时平台线程池的线程数, 超出的任务在无界队列中排队
+     * @return 执行器
+     */
+    static ExecutorService newThreadPerTaskExecutor(String name, int fallbackThreads) {
+        ThreadPoolExecutor executor = new InstrumentedThreadPoolExecutor(name, fallbackThreads, fallbackThreads,
+                60L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                new NamedThreadFactory(name, true), new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
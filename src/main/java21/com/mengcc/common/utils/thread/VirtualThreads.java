@@ -0,0 +1,33 @@
+package com.mengcc.common.utils.thread;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 每个任务一个虚拟线程的执行器, Java 21及以上的实现, 打包到jar包的META-INF/versions/21下.
+ * 与src/main/java中的同名类保持相同的非私有成员.
+ *
+ * @author zhouzq
+ * @date 2020/5/27
+ */
+final class VirtualThreads {
+
+    private VirtualThreads() {
+    }
+
+    /**
+     * 当前JVM是否使用虚拟线程
+     */
+    static boolean isSupported() {
+        return true;
+    }
+
+    /**
+     * @param name            线程名前缀
+     * @param fallbackThreads 虚拟线程不受此限制, 仅为与Java 8版本保持签名一致
+     * @return 执行器
+     */
+    static ExecutorService newThreadPerTaskExecutor(String name, int fallbackThreads) {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 1L).factory());
+    }
+}
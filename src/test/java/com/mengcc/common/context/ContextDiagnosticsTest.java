@@ -0,0 +1,66 @@
+package com.mengcc.common.context;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author zhouzq
+ * @date 2020/5/28
+ */
+public class ContextDiagnosticsTest {
+
+    private static final ContextKey<String> TRACE_ID = ContextKey.of("ContextDiagnosticsTest.traceId", String.class);
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(r -> new Thread(r, "diagnostics-test"));
+
+    @After
+    public void tearDown() {
+        ContextDiagnostics.disable();
+        executor.shutdownNow();
+        ThreadContext.close();
+    }
+
+    @Test
+    public void valueLeftAfterRequestIsReportedAsStale() throws Exception {
+        ContextDiagnostics.enable(50L, TimeUnit.MILLISECONDS);
+        executor.submit(() -> {
+            ThreadContext.set(TRACE_ID, "leaked");
+            ThreadContext.set("ContextDiagnosticsTest.undeclared", "leaked");
+        }).get();
+        Thread.sleep(100L);
+
+        ContextSample sample = sampleOf("diagnostics-test");
+        assertEquals(2, sample.getEntryCount());
+        assertEquals(Arrays.asList(TRACE_ID.getName(), "ContextDiagnosticsTest.undeclared"), sample.getStaleKeys());
+    }
+
+    @Test
+    public void attachingSnapshotToIdleThreadIsNotStale() throws Exception {
+        ContextDiagnostics.enable(50L, TimeUnit.MILLISECONDS);
+        executor.submit(ThreadContext::close).get();
+        // 线程池线程空闲超过maxEntryAge
+        Thread.sleep(100L);
+
+        ThreadContext.set(TRACE_ID, "t-1");
+        ContextSample sample = executor.submit(ContextPropagation.callable(() -> sampleOf("diagnostics-test"))).get();
+        assertEquals(1, sample.getEntryCount());
+        assertTrue(sample.getStaleKeys().isEmpty());
+    }
+
+    private static ContextSample sampleOf(String threadName) {
+        for (ContextSample sample : ContextDiagnostics.sample()) {
+            if (threadName.equals(sample.getThreadName())) {
+                return sample;
+            }
+        }
+        throw new AssertionError("thread [" + threadName + "] is not registered");
+    }
+}
@@ -0,0 +1,147 @@
+package com.mengcc.common.context;
+
+import com.google.common.base.Preconditions;
+import org.junit.After;
+import org.junit.Test;
+import org.slf4j.LoggerFactory;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author zhouzq
+ * @date 2020/5/28
+ */
+public class ContextKeyTest {
+
+    private static final ContextKey<String> TENANT_ID = ContextKey.of("ContextKeyTest.tenantId", String.class);
+
+    @After
+    public void tearDown() {
+        ThreadContext.close();
+    }
+
+    @Test
+    public void sameNameIsSameKeyAndSharesSlotWithStringApi() {
+        assertSame(TENANT_ID, ContextKey.of("ContextKeyTest.tenantId", String.class));
+        ThreadContext.set(TENANT_ID, "t1");
+        assertEquals("t1", ThreadContext.get("ContextKeyTest.tenantId"));
+        ThreadContext.set("ContextKeyTest.tenantId", "t2");
+        assertEquals("t2", ThreadContext.get(TENANT_ID));
+        ThreadContext.remove("ContextKeyTest.tenantId");
+        assertNull(ThreadContext.get(TENANT_ID));
+    }
+
+    @Test
+    public void redeclaringWithAnotherTypeIsRejected() {
+        try {
+            ContextKey.of("ContextKeyTest.tenantId", Long.class);
+            fail("key is already declared as String");
+        } catch (IllegalArgumentException expected) {
+            // 同名的key只能有一种类型
+        }
+        ContextKey<List<String>> ids = ContextKey.of("ContextKeyTest.ids", List.class);
+        assertEquals(List.class, ids.getType());
+    }
+
+    @Test
+    public void stringApiKeyCanBeDeclaredLaterAndIsThenChecked() {
+        ThreadContext.set("ContextKeyTest.userId", 1L);
+        ContextKey<Long> userId = ContextKey.of("ContextKeyTest.userId", Long.class);
+        assertEquals(Long.valueOf(1L), ThreadContext.get(userId));
+        try {
+            ThreadContext.set("ContextKeyTest.userId", "1");
+            fail("value doesn't match the declared type");
+        } catch (ClassCastException expected) {
+            // 字符串API写入的值也要符合声明的类型
+        }
+        try {
+            ContextSnapshot.empty().with("ContextKeyTest.userId", "1");
+            fail("value doesn't match the declared type");
+        } catch (ClassCastException expected) {
+            // 快照同样校验
+        }
+        assertEquals(Long.valueOf(1L), ThreadContext.get(userId));
+    }
+
+    @Test
+    public void readingUnknownKeyDoesNotAllocateSlot() {
+        int slots = ContextKey.slotCount();
+        assertNull(ThreadContext.get("ContextKeyTest.unknown"));
+        ThreadContext.remove("ContextKeyTest.unknown");
+        assertEquals(slots, ContextKey.slotCount());
+    }
+
+    @Test
+    public void undeclaredStringKeysDoNotUseSlots() {
+        int slots = ContextKey.slotCount();
+        int count = ContextKey.MAX_KEYS + 10;
+        for (int i = 0; i < count; i++) {
+            ThreadContext.set("ContextKeyTest.dynamic-" + i, i);
+        }
+        assertEquals(slots, ContextKey.slotCount());
+        assertEquals(Integer.valueOf(ContextKey.MAX_KEYS), ThreadContext.get("ContextKeyTest.dynamic-" + ContextKey.MAX_KEYS));
+
+        // 快照和其他线程同样可以读到
+        ContextSnapshot snapshot = ThreadContext.capture();
+        ThreadContext.remove("ContextKeyTest.dynamic-0");
+        assertNull(ThreadContext.get("ContextKeyTest.dynamic-0"));
+        assertEquals(Integer.valueOf(0), snapshot.get("ContextKeyTest.dynamic-0"));
+        assertEquals(count, snapshot.toMap().size());
+
+        ThreadContext.close();
+        assertNull(ThreadContext.get("ContextKeyTest.dynamic-1"));
+        assertTrue(ThreadContext.capture().isEmpty());
+    }
+
+    @Test
+    public void declaringKeyTakesOverValueWrittenBeforehand() {
+        ThreadContext.set("ContextKeyTest.orderId", "o-1");
+        ContextSnapshot before = ThreadContext.capture();
+        ContextKey<String> orderId = ContextKey.of("ContextKeyTest.orderId", String.class);
+        assertEquals("o-1", ThreadContext.get(orderId));
+        assertEquals("o-1", before.get(orderId));
+
+        ThreadContext.remove(orderId);
+        assertNull(ThreadContext.get("ContextKeyTest.orderId"));
+        assertEquals("o-1", before.get("ContextKeyTest.orderId"));
+        assertNull(before.without(orderId).get(orderId));
+    }
+
+    @Test
+    public void slotAllocationIsCapped() throws Exception {
+        // 槽位是全局的, 在独立的类加载器中耗尽槽位, 不影响其他测试
+        URL[] urls = {
+                ContextKey.class.getProtectionDomain().getCodeSource().getLocation(),
+                Preconditions.class.getProtectionDomain().getCodeSource().getLocation(),
+                LoggerFactory.class.getProtectionDomain().getCodeSource().getLocation()};
+        try (URLClassLoader loader = new URLClassLoader(urls, null)) {
+            Class<?> contextKey = loader.loadClass(ContextKey.class.getName());
+            Method of = contextKey.getMethod("of", String.class, Class.class);
+            for (int i = 0; i < ContextKey.MAX_KEYS; i++) {
+                of.invoke(null, "declared-" + i, Integer.class);
+            }
+            try {
+                of.invoke(null, "declared-" + ContextKey.MAX_KEYS, Integer.class);
+                fail("slots are capped at " + ContextKey.MAX_KEYS);
+            } catch (InvocationTargetException e) {
+                // 动态声明的key耗尽槽位后明确失败, 而不是无限增长
+                assertEquals(IllegalStateException.class, e.getCause().getClass());
+            }
+            // 已声明的key仍然可以取得, 字符串API不受影响
+            of.invoke(null, "declared-0", Integer.class);
+            Class<?> threadContext = loader.loadClass(ThreadContext.class.getName());
+            threadContext.getMethod("set", String.class, Object.class).invoke(null, "dynamic", 1);
+            assertEquals(1, threadContext.getMethod("get", String.class).invoke(null, "dynamic"));
+        }
+    }
+}
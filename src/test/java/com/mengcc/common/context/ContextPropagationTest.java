@@ -0,0 +1,85 @@
+package com.mengcc.common.context;
+
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * @author zhouzq
+ * @date 2020/5/28
+ */
+public class ContextPropagationTest {
+
+    private static final ExecutorService EXECUTOR = Executors.newSingleThreadExecutor();
+
+    @After
+    public void tearDown() {
+        ThreadContext.close();
+    }
+
+    @AfterClass
+    public static void shutdown() {
+        EXECUTOR.shutdownNow();
+    }
+
+    @Test
+    public void runnableSeesSubmitterContextAndRestoresWorkerContext() throws Exception {
+        EXECUTOR.submit(() -> ThreadContext.set("worker", "pool")).get();
+
+        ThreadContext.set("traceId", "t-1");
+        String[] seen = new String[2];
+        EXECUTOR.submit(ContextPropagation.runnable(() -> {
+            seen[0] = ThreadContext.get("traceId");
+            seen[1] = ThreadContext.get("worker");
+        })).get();
+        assertEquals("t-1", seen[0]);
+        assertNull(seen[1]);
+
+        // 执行完成后恢复执行线程原有的上下文
+        assertEquals("pool", EXECUTOR.submit(() -> ThreadContext.get("worker")).get());
+        assertNull(EXECUTOR.submit(() -> ThreadContext.get("traceId")).get());
+        EXECUTOR.submit(ThreadContext::close).get();
+    }
+
+    @Test
+    public void contextIsCapturedWhenTaskIsWrapped() throws Exception {
+        ThreadContext.set("traceId", "t-1");
+        Callable<String> task = ContextPropagation.callable(() -> ThreadContext.get("traceId"));
+        ThreadContext.set("traceId", "t-2");
+        assertEquals("t-1", EXECUTOR.submit(task).get());
+        assertEquals("t-2", ThreadContext.get("traceId"));
+    }
+
+    @Test
+    public void supplierPropagatesIntoCompletableFuture() throws Exception {
+        ThreadContext.set("traceId", "t-1");
+        String traceId = CompletableFuture.supplyAsync(ContextPropagation.supplier(() -> ThreadContext.<String>get("traceId")), EXECUTOR)
+                .get(5, TimeUnit.SECONDS);
+        assertEquals("t-1", traceId);
+    }
+
+    @Test
+    public void wrappingIsIdempotentAndUnwrappable() {
+        Runnable task = () -> { };
+        Runnable wrapped = ContextPropagation.runnable(task);
+        assertSame(wrapped, ContextPropagation.runnable(wrapped));
+        assertSame(task, ContextPropagation.unwrap(wrapped));
+        assertSame(task, ContextPropagation.unwrap(task));
+
+        Supplier<String> supplier = ContextPropagation.supplier(() -> "x");
+        assertSame(supplier, ContextPropagation.supplier(supplier));
+        Callable<String> callable = ContextPropagation.callable(() -> "x");
+        assertSame(callable, ContextPropagation.callable(callable));
+    }
+}
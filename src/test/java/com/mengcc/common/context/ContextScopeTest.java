@@ -0,0 +1,70 @@
+package com.mengcc.common.context;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author zhouzq
+ * @date 2020/5/28
+ */
+public class ContextScopeTest {
+
+    private static final ContextKey<String> TENANT_ID = ContextKey.of("ContextScopeTest.tenantId", String.class);
+
+    @After
+    public void tearDown() {
+        ThreadContext.close();
+    }
+
+    @Test
+    public void nestedScopesRestoreInOrder() {
+        ThreadContext.set(TENANT_ID, "t1");
+        try (ContextScope outer = ThreadContext.openScope(TENANT_ID, "t2")) {
+            assertEquals("t2", ThreadContext.get(TENANT_ID));
+            try (ContextScope inner = ThreadContext.openScope("ContextScopeTest.user", "u1")) {
+                ThreadContext.remove(TENANT_ID);
+                assertNull(ThreadContext.get(TENANT_ID));
+                assertEquals("u1", ThreadContext.get("ContextScopeTest.user"));
+            }
+            assertEquals("t2", ThreadContext.get(TENANT_ID));
+            assertNull(ThreadContext.get("ContextScopeTest.user"));
+        }
+        assertEquals("t1", ThreadContext.get(TENANT_ID));
+    }
+
+    @Test
+    public void snapshotScopeRestoresAndRepeatedCloseIsIgnored() {
+        ThreadContext.set(TENANT_ID, "t1");
+        ContextScope scope = ThreadContext.openScope(ContextSnapshot.empty());
+        assertTrue(ThreadContext.capture().isEmpty());
+        scope.close();
+        assertEquals("t1", ThreadContext.get(TENANT_ID));
+
+        ThreadContext.set(TENANT_ID, "t2");
+        scope.close();
+        assertEquals("t2", ThreadContext.get(TENANT_ID));
+    }
+
+    @Test
+    public void closingOnAnotherThreadIsRejected() throws Exception {
+        ContextScope scope = ThreadContext.openScope(TENANT_ID, "t1");
+        Throwable error = CompletableFuture.supplyAsync(() -> {
+            try {
+                scope.close();
+                return null;
+            } catch (IllegalStateException e) {
+                return e;
+            }
+        }).get();
+        assertTrue(error instanceof IllegalStateException);
+        assertEquals("t1", ThreadContext.get(TENANT_ID));
+        scope.close();
+        assertNull(ThreadContext.get(TENANT_ID));
+    }
+}
@@ -0,0 +1,90 @@
+package com.mengcc.common.context;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author zhouzq
+ * @date 2020/5/28
+ */
+public class ContextSnapshotTest {
+
+    private static final ContextKey<String> TRACE_ID = ContextKey.of("ContextSnapshotTest.traceId", String.class);
+
+    private static final ContextKey<Integer> SHARD = ContextKey.of("ContextSnapshotTest.shard", Integer.class);
+
+    @After
+    public void tearDown() {
+        ThreadContext.close();
+    }
+
+    @Test
+    public void captureIsStableUntilNextWrite() {
+        ThreadContext.set(TRACE_ID, "t-1");
+        ContextSnapshot snapshot = ThreadContext.capture();
+        assertSame(snapshot, ThreadContext.capture());
+
+        ThreadContext.set(TRACE_ID, "t-2");
+        assertEquals("t-1", snapshot.get(TRACE_ID));
+        assertEquals("t-2", ThreadContext.get(TRACE_ID));
+        assertNotSame(snapshot, ThreadContext.capture());
+
+        ThreadContext.close();
+        assertEquals("t-1", snapshot.get(TRACE_ID));
+        assertTrue(ThreadContext.capture().isEmpty());
+    }
+
+    @Test
+    public void withCreatesNewVersionAndSharesUntouchedChunks() {
+        // 声明足够多的key, 使两个key落在不同的块中
+        ContextKey<Integer> far = SHARD;
+        for (int i = 0; (far.slot >>> ContextSnapshot.CHUNK_SHIFT) == (TRACE_ID.slot >>> ContextSnapshot.CHUNK_SHIFT); i++) {
+            far = ContextKey.of("ContextSnapshotTest.filler" + i, Integer.class);
+        }
+        ContextSnapshot base = ContextSnapshot.empty().with(TRACE_ID, "t-1").with(far, 0);
+        ContextSnapshot next = base.with(far, 1);
+
+        assertEquals(Integer.valueOf(0), base.get(far));
+        assertEquals(Integer.valueOf(1), next.get(far));
+        assertEquals("t-1", next.get(TRACE_ID));
+        int index = TRACE_ID.slot >>> ContextSnapshot.CHUNK_SHIFT;
+        assertSame(base.chunks[index], next.chunks[index]);
+        assertSame(next, next.with(far, 1));
+    }
+
+    @Test
+    public void withoutAndStringApi() {
+        ContextSnapshot snapshot = ContextSnapshot.empty()
+                .with(TRACE_ID, "t-1")
+                .with("ContextSnapshotTest.user", "u-1");
+        assertEquals("u-1", snapshot.get("ContextSnapshotTest.user"));
+        assertNull(snapshot.get("ContextSnapshotTest.unknown"));
+        assertEquals(Collections.singletonMap("ContextSnapshotTest.user", "u-1"), snapshot.without(TRACE_ID).toMap());
+        assertTrue(snapshot.without(TRACE_ID).with("ContextSnapshotTest.user", null).isEmpty());
+    }
+
+    @Test
+    public void attachInstallsSnapshotAndReturnsPrevious() {
+        ThreadContext.set(TRACE_ID, "mine");
+        ContextSnapshot other = ContextSnapshot.empty().with(SHARD, 3);
+        ContextSnapshot previous = ThreadContext.attach(other);
+        assertNull(ThreadContext.get(TRACE_ID));
+        assertEquals(Integer.valueOf(3), ThreadContext.get(SHARD));
+
+        // 安装后的写入不影响被安装的快照
+        ThreadContext.set(SHARD, 4);
+        assertEquals(Integer.valueOf(3), other.get(SHARD));
+
+        ThreadContext.attach(previous);
+        assertEquals("mine", ThreadContext.get(TRACE_ID));
+        assertNull(ThreadContext.get(SHARD));
+    }
+}
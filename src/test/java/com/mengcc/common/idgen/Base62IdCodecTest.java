@@ -0,0 +1,60 @@
+package com.mengcc.common.idgen;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author zhouzq
+ * @date 2020/5/28
+ */
+public class Base62IdCodecTest {
+
+    @Test
+    public void roundTripsBoundaryAndRandomIds() {
+        long[] ids = {0L, 1L, 61L, 62L, Long.MAX_VALUE};
+        for (long id : ids) {
+            assertEquals(id, Base62IdCodec.decode(Base62IdCodec.encode(id)));
+        }
+        Random random = new Random(42L);
+        for (int i = 0; i < 100000; i++) {
+            long id = random.nextLong() & Long.MAX_VALUE;
+            String encoded = Base62IdCodec.encode(id);
+            assertEquals(Base62IdCodec.ENCODED_LENGTH, encoded.length());
+            assertEquals(id, Base62IdCodec.decode(encoded));
+        }
+    }
+
+    @Test
+    public void encodingPreservesIdOrder() {
+        long[] ids = new SnowflakeIdGenerator(1L, 1L).generateIds(10000);
+        for (int i = 1; i < ids.length; i++) {
+            assertTrue(Base62IdCodec.encode(ids[i - 1]).compareTo(Base62IdCodec.encode(ids[i])) < 0);
+        }
+    }
+
+    @Test
+    public void encodesIntoCallerBuffer() {
+        char[] buf = new char[Base62IdCodec.ENCODED_LENGTH + 2];
+        int end = Base62IdCodec.encode(123456789L, buf, 2);
+        assertEquals(2 + Base62IdCodec.ENCODED_LENGTH, end);
+        assertEquals(123456789L, Base62IdCodec.decode(buf, 2, Base62IdCodec.ENCODED_LENGTH));
+        assertEquals(61L, Base62IdCodec.decode("z"));
+    }
+
+    @Test
+    public void rejectsInvalidInput() {
+        for (String invalid : new String[]{"", "000000000000", "0000000000!", "zzzzzzzzzzz"}) {
+            try {
+                Base62IdCodec.decode(invalid);
+                fail("[" + invalid + "] is not a valid encoded id");
+            } catch (IllegalArgumentException expected) {
+                // 长度不对、含非法字符或超出long范围
+            }
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.mengcc.common.idgen;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author zhouzq
+ * @date 2020/5/28
+ */
+public class CachedIdGeneratorTest {
+
+    @Test
+    public void concurrentIdsAreUniqueAndIncreasingPerThread() throws Exception {
+        // 小缓冲区使游标多次绕回, 并触发取空后的同步补充
+        try (CachedIdGenerator generator = new CachedIdGenerator(SnowflakeLayout.DEFAULT, 1L, 2L, 1024, 50, SystemMillisClock.INSTANCE)) {
+            IdGeneratorTests.assertUniqueAndIncreasing(IdGeneratorTests.generateConcurrently(generator, 8, 50000));
+            assertEquals(8 * 50000L, generator.metricsSnapshot().getIssued());
+            assertTrue(generator.getPaddingCount() > 0L);
+        }
+    }
+
+    @Test
+    public void frozenClockBorrowsFutureMilliseconds() {
+        AtomicLong now = new AtomicLong(System.currentTimeMillis());
+        try (CachedIdGenerator generator = new CachedIdGenerator(SnowflakeLayout.DEFAULT, 0L, 0L, 1 << 12, 50, now::get)) {
+            long[] ids = new long[20000];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = generator.generateId();
+            }
+            IdGeneratorTests.assertIncreasing(ids);
+            assertTrue(SnowflakeIdGenerator.timestampOf(ids[ids.length - 1]) > now.get());
+        }
+    }
+
+    @Test
+    public void clockBackwardsNeverRepeatsIds() {
+        AtomicLong now = new AtomicLong(System.currentTimeMillis());
+        try (CachedIdGenerator generator = new CachedIdGenerator(SnowflakeLayout.DEFAULT, 0L, 0L, 1 << 12, 50, now::get)) {
+            long[] ids = new long[30000];
+            for (int i = 0; i < ids.length; i++) {
+                if (i == 10000) {
+                    now.addAndGet(-1000L);
+                }
+                if (i == 20000) {
+                    now.addAndGet(2000L);
+                }
+                ids[i] = generator.generateId();
+            }
+            IdGeneratorTests.assertIncreasing(ids);
+        }
+    }
+
+    @Test
+    public void closedGeneratorRefillsSynchronously() {
+        CachedIdGenerator generator = new CachedIdGenerator(SnowflakeLayout.DEFAULT, 0L, 0L, 256, 50, SystemMillisClock.INSTANCE);
+        generator.close();
+        long[] ids = new long[2000];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = generator.generateId();
+        }
+        IdGeneratorTests.assertIncreasing(ids);
+        assertTrue(generator.getStarvationCount() > 0L);
+    }
+}
@@ -0,0 +1,117 @@
+package com.mengcc.common.idgen;
+
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author zhouzq
+ * @date 2020/5/28
+ */
+public class CasSnowflakeIdGeneratorTest {
+
+    @Test
+    public void concurrentIdsAreUniqueAndIncreasingPerThread() throws Exception {
+        CasSnowflakeIdGenerator generator = new CasSnowflakeIdGenerator(1L, 2L);
+        IdGeneratorTests.assertUniqueAndIncreasing(IdGeneratorTests.generateConcurrently(generator, 8, 50000));
+        assertEquals(8 * 50000L, generator.metricsSnapshot().getIssued());
+    }
+
+    @Test
+    public void fillReservesIncreasingRuns() throws Exception {
+        CasSnowflakeIdGenerator generator = new CasSnowflakeIdGenerator(0L, 0L);
+        long[] ids = generator.generateIds(10000);
+        IdGeneratorTests.assertIncreasing(ids);
+        assertTrue(generator.generateId() > ids[ids.length - 1]);
+
+        CasSnowflakeIdGenerator shared = new CasSnowflakeIdGenerator(0L, 0L);
+        long[][] perThread = IdGeneratorTests.generateConcurrently(() -> {
+            long[] batch = shared.generateIds(64);
+            return batch[batch.length - 1];
+        }, 4, 2000);
+        IdGeneratorTests.assertUniqueAndIncreasing(perThread);
+        assertEquals(4 * 2000 * 64L, shared.metricsSnapshot().getIssued());
+    }
+
+    @Test
+    public void idsCarryTimestampAndNodeBits() {
+        long before = System.currentTimeMillis();
+        long id = new CasSnowflakeIdGenerator(3L, 7L).generateId();
+        long after = System.currentTimeMillis();
+        assertTrue(SnowflakeIdGenerator.timestampOf(id) >= before && SnowflakeIdGenerator.timestampOf(id) <= after);
+        assertEquals(3L, SnowflakeIdGenerator.datacenterOf(id));
+        assertEquals(7L, SnowflakeIdGenerator.workerOf(id));
+    }
+
+    @Test
+    public void exhaustedSequenceWaitsForNextMillisecond() throws Exception {
+        AtomicLong now = new AtomicLong(System.currentTimeMillis());
+        CasSnowflakeIdGenerator generator = new CasSnowflakeIdGenerator(0L, 0L, now::get);
+        long sequenceMask = SnowflakeLayout.DEFAULT.getSequenceMask();
+        long last = -1L;
+        for (long i = 0; i <= sequenceMask; i++) {
+            long id = generator.generateId();
+            assertEquals(i, SnowflakeIdGenerator.sequenceOf(id));
+            last = id;
+        }
+
+        CompletableFuture<Long> next = CompletableFuture.supplyAsync(generator::generateId);
+        try {
+            next.get(50, TimeUnit.MILLISECONDS);
+            fail("sequence is exhausted, generator should wait for the clock");
+        } catch (TimeoutException expected) {
+            // 时钟不前进时一直等待
+        }
+        now.incrementAndGet();
+        long id = next.get(5, TimeUnit.SECONDS);
+        assertTrue(id > last);
+        assertEquals(now.get(), SnowflakeIdGenerator.timestampOf(id));
+        assertEquals(0L, SnowflakeIdGenerator.sequenceOf(id));
+        assertEquals(1L, generator.metricsSnapshot().getExhaustionWaits());
+        assertEquals(1L, generator.getWaitCount());
+        assertEquals(generator.metricsSnapshot().getWaitNanos(), generator.getWaitNanos());
+    }
+
+    @Test
+    public void clockBackwardsThrows() {
+        AtomicLong now = new AtomicLong(System.currentTimeMillis());
+        CasSnowflakeIdGenerator generator = new CasSnowflakeIdGenerator(0L, 0L, now::get);
+        generator.generateId();
+        now.addAndGet(-5L);
+        for (int i = 0; i < 100; i++) {
+            try {
+                generator.generateId();
+                fail("clock moved backwards");
+            } catch (IllegalStateException expected) {
+                assertFalse(expected.getMessage().isEmpty());
+            }
+        }
+        try {
+            generator.fill(new long[10], 0, 10);
+            fail("clock moved backwards");
+        } catch (IllegalStateException expected) {
+            // 批量取号同样抛出
+        }
+        // 同一次回拨期间的多次调用只计一次
+        assertEquals(1L, generator.metricsSnapshot().getClockBackwards());
+
+        // 时钟恢复后再次回拨, 计为新的一次
+        now.addAndGet(10L);
+        generator.generateId();
+        now.addAndGet(-5L);
+        try {
+            generator.generateId();
+            fail("clock moved backwards");
+        } catch (IllegalStateException expected) {
+            assertEquals(2L, generator.metricsSnapshot().getClockBackwards());
+        }
+    }
+}
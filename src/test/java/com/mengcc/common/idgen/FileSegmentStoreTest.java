@@ -0,0 +1,56 @@
+package com.mengcc.common.idgen;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.fail;
+
+/**
+ * @author zhouzq
+ * @date 2020/5/28
+ */
+public class FileSegmentStoreTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void allocationContinuesAcrossInstances() throws Exception {
+        Path directory = folder.newFolder("segments").toPath();
+        IdSegment first = new FileSegmentStore(directory).allocate("order", 100);
+        IdSegment second = new FileSegmentStore(directory).allocate("order", 100);
+        assertEquals(1L, first.getStart());
+        assertEquals(101L, first.getEnd());
+        assertEquals(101L, second.getStart());
+        assertEquals(1L, new FileSegmentStore(directory).allocate("user", 10).getStart());
+    }
+
+    @Test
+    public void concurrentAllocationsDoNotOverlap() throws Exception {
+        FileSegmentStore store = new FileSegmentStore(folder.newFolder("segments").toPath());
+        long[][] starts = IdGeneratorTests.generateConcurrently(() -> store.allocate("order", 10).getStart(), 4, 50);
+        IdGeneratorTests.assertUniqueAndIncreasing(starts);
+    }
+
+    @Test
+    public void rejectsKeysThatEscapeTheDirectory() throws Exception {
+        Path directory = folder.newFolder("segments").toPath();
+        FileSegmentStore store = new FileSegmentStore(directory);
+        for (String key : new String[]{"../order", "a/b", "a\\b", ".hidden", "..", ""}) {
+            try {
+                store.allocate(key, 10);
+                fail("key [" + key + "] should be rejected");
+            } catch (IllegalArgumentException expected) {
+                // 业务标识只能是单个文件名
+            }
+        }
+        assertFalse(Files.exists(directory.getParent().resolve("order.segment")));
+        assertEquals(1L, store.allocate("order-2020_v1.0", 10).getStart());
+    }
+}
@@ -0,0 +1,69 @@
+package com.mengcc.common.idgen;
+
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * @author zhouzq
+ * @date 2020/5/28
+ */
+public class IdGeneratorRegistryTest {
+
+    @Test
+    public void eachKeyGetsOneIndependentGenerator() {
+        IdGeneratorRegistry registry = IdGeneratorRegistry.snowflake(1L, 1L);
+        IdGenerator order = registry.get("order");
+        assertSame(order, registry.get("order"));
+        assertEquals(Collections.singleton("order"), registry.keys());
+
+        registry.generateId("order");
+        registry.generateId("payment");
+        registry.generateId("payment");
+        Map<String, IdGeneratorMetrics.Snapshot> snapshots = registry.metricsSnapshot();
+        assertEquals(1L, snapshots.get("order").getIssued());
+        assertEquals(2L, snapshots.get("payment").getIssued());
+    }
+
+    @Test
+    public void concurrentFirstUseCreatesOneGeneratorPerKey() throws Exception {
+        ConcurrentMap<String, AtomicInteger> created = new ConcurrentHashMap<>();
+        IdGeneratorRegistry registry = new IdGeneratorRegistry(key -> {
+            created.computeIfAbsent(key, k -> new AtomicInteger()).incrementAndGet();
+            return new CasSnowflakeIdGenerator(1L, 1L);
+        });
+        IdGenerator order = () -> registry.generateId("order");
+        IdGenerator payment = () -> registry.generateId("payment");
+
+        IdGeneratorTests.assertUniqueAndIncreasing(IdGeneratorTests.generateConcurrently(order, 8, 10000));
+        IdGeneratorTests.assertUniqueAndIncreasing(IdGeneratorTests.generateConcurrently(payment, 8, 10000));
+        assertEquals(1, created.get("order").get());
+        assertEquals(1, created.get("payment").get());
+    }
+
+    @Test
+    public void rejectsInvalidNodeAndNullGenerator() {
+        try {
+            IdGeneratorRegistry.snowflake(SnowflakeLayout.DEFAULT.getMaxDatacenterId() + 1, 0L);
+            fail("datacenter id is out of range");
+        } catch (IllegalArgumentException expected) {
+            // 创建注册表时即校验
+        }
+        IdGeneratorRegistry registry = new IdGeneratorRegistry(key -> null);
+        try {
+            registry.get("order");
+            fail("factory returned null");
+        } catch (NullPointerException expected) {
+            // 工厂不能返回null
+        }
+        assertEquals(0, registry.keys().size());
+    }
+}
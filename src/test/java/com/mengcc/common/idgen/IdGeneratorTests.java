@@ -0,0 +1,93 @@
+package com.mengcc.common.idgen;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * ID生成器测试的公共方法: 多线程并发发号, 校验全局唯一、线程内严格递增
+ *
+ * @author zhouzq
+ * @date 2020/5/28
+ */
+final class IdGeneratorTests {
+
+    private IdGeneratorTests() {
+    }
+
+    /**
+     * 多个线程同时开始, 各自生成perThread个ID
+     *
+     * @return 每个线程按生成顺序排列的ID
+     */
+    static long[][] generateConcurrently(IdGenerator generator, int threads, int perThread) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<long[]>> futures = new ArrayList<>(threads);
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    long[] ids = new long[perThread];
+                    start.await();
+                    for (int i = 0; i < perThread; i++) {
+                        ids[i] = generator.generateId();
+                    }
+                    return ids;
+                }));
+            }
+            start.countDown();
+            long[][] result = new long[threads][];
+            for (int t = 0; t < threads; t++) {
+                result[t] = futures.get(t).get(60, TimeUnit.SECONDS);
+            }
+            return result;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * 每个线程内严格递增, 所有线程合起来没有重复
+     */
+    static void assertUniqueAndIncreasing(long[][] perThread) {
+        int total = 0;
+        for (long[] ids : perThread) {
+            assertIncreasing(ids);
+            total += ids.length;
+        }
+        long[] all = new long[total];
+        int pos = 0;
+        for (long[] ids : perThread) {
+            System.arraycopy(ids, 0, all, pos, ids.length);
+            pos += ids.length;
+        }
+        assertUnique(all);
+    }
+
+    static void assertIncreasing(long[] ids) {
+        for (int i = 1; i < ids.length; i++) {
+            if (ids[i] <= ids[i - 1]) {
+                fail("id at " + i + " is not increasing: " + ids[i - 1] + " -> " + ids[i]);
+            }
+        }
+    }
+
+    static void assertUnique(long[] ids) {
+        long[] sorted = ids.clone();
+        Arrays.sort(sorted);
+        for (int i = 1; i < sorted.length; i++) {
+            if (sorted[i] == sorted[i - 1]) {
+                fail("duplicate id " + sorted[i]);
+            }
+        }
+        assertTrue(sorted.length == 0 || sorted[0] >= 0L);
+    }
+}
@@ -0,0 +1,66 @@
+package com.mengcc.common.idgen;
+
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author zhouzq
+ * @date 2020/5/28
+ */
+public class IdRangeTest {
+
+    @Test
+    public void idsGeneratedWithinMillisecondFallInItsRange() {
+        long id = new SnowflakeIdGenerator(31L, 31L).generateId();
+        long millis = SnowflakeIdGenerator.timestampOf(id);
+        assertTrue(SnowflakeIdGenerator.minIdAt(millis) <= id);
+        assertTrue(SnowflakeIdGenerator.maxIdAt(millis) >= id);
+        assertEquals(SnowflakeIdGenerator.maxIdAt(millis) + 1, SnowflakeIdGenerator.minIdAt(millis + 1));
+    }
+
+    @Test
+    public void splitRangeCoversWindowContiguously() {
+        long from = System.currentTimeMillis() - 10007L;
+        long to = from + 10006L;
+        List<IdRange> ranges = SnowflakeIdGenerator.splitRange(from, to, 7);
+        assertEquals(7, ranges.size());
+        assertEquals(SnowflakeIdGenerator.minIdAt(from), ranges.get(0).getMinId());
+        assertEquals(SnowflakeIdGenerator.maxIdAt(to), ranges.get(6).getMaxId());
+        for (int i = 1; i < ranges.size(); i++) {
+            assertEquals(ranges.get(i - 1).getMaxId() + 1, ranges.get(i).getMinId());
+        }
+        // 每份的时间跨度最多相差1毫秒
+        long minSpan = Long.MAX_VALUE;
+        long maxSpan = 0L;
+        for (IdRange range : ranges) {
+            long span = SnowflakeIdGenerator.timestampOf(range.getMaxId()) - SnowflakeIdGenerator.timestampOf(range.getMinId()) + 1;
+            minSpan = Math.min(minSpan, span);
+            maxSpan = Math.max(maxSpan, span);
+        }
+        assertTrue(maxSpan - minSpan <= 1L);
+    }
+
+    @Test
+    public void shortWindowIsSplitPerMillisecond() {
+        long from = System.currentTimeMillis();
+        List<IdRange> ranges = SnowflakeIdGenerator.splitRange(from, from + 2L, 10);
+        assertEquals(3, ranges.size());
+        assertTrue(ranges.get(1).contains(SnowflakeIdGenerator.minIdAt(from + 1L)));
+    }
+
+    @Test
+    public void rejectsInvertedWindow() {
+        long now = System.currentTimeMillis();
+        try {
+            SnowflakeIdGenerator.splitRange(now, now - 1L, 2);
+            fail("fromMillis is greater than toMillis");
+        } catch (IllegalArgumentException expected) {
+            // 开始时间不能晚于结束时间
+        }
+    }
+}
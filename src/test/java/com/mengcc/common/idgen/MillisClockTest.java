@@ -0,0 +1,52 @@
+package com.mengcc.common.idgen;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author zhouzq
+ * @date 2020/5/28
+ */
+public class MillisClockTest {
+
+    @Test
+    public void monotonicClockNeverGoesBackwards() {
+        MonotonicMillisClock clock = new MonotonicMillisClock();
+        assertTrue(Math.abs(clock.currentMillis() - System.currentTimeMillis()) < 100L);
+        long last = clock.currentMillis();
+        for (int i = 0; i < 100000; i++) {
+            long now = clock.currentMillis();
+            assertTrue(now >= last);
+            last = now;
+        }
+    }
+
+    @Test
+    public void tickingClockAdvancesUntilClosed() throws Exception {
+        TickingMillisClock clock = new TickingMillisClock();
+        long first = clock.currentMillis();
+        assertTrue(Math.abs(first - System.currentTimeMillis()) < 100L);
+        Thread.sleep(30L);
+        assertTrue(clock.currentMillis() > first);
+
+        clock.close();
+        Thread.sleep(5L);
+        long stopped = clock.currentMillis();
+        Thread.sleep(20L);
+        assertEquals(stopped, clock.currentMillis());
+    }
+
+    @Test
+    public void sharedTickingClockIsRecreatedAfterClose() {
+        TickingMillisClock shared = TickingMillisClock.getInstance();
+        assertSame(shared, TickingMillisClock.getInstance());
+        shared.close();
+        TickingMillisClock recreated = TickingMillisClock.getInstance();
+        assertNotSame(shared, recreated);
+        recreated.close();
+    }
+}
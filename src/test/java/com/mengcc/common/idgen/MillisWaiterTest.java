@@ -0,0 +1,51 @@
+package com.mengcc.common.idgen;
+
+import org.junit.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author zhouzq
+ * @date 2020/5/28
+ */
+public class MillisWaiterTest {
+
+    @Test
+    public void returnsImmediatelyWhenClockIsAhead() {
+        IdGeneratorMetrics metrics = new IdGeneratorMetrics();
+        MillisWaiter waiter = new MillisWaiter(metrics);
+        assertEquals(101L, waiter.awaitAfter(() -> 101L, 100L));
+        assertEquals(0L, metrics.snapshot().getExhaustionWaits());
+    }
+
+    @Test
+    public void parksUntilClockMovesPastLastTime() throws Exception {
+        IdGeneratorMetrics metrics = new IdGeneratorMetrics();
+        MillisWaiter waiter = new MillisWaiter(metrics);
+        AtomicLong now = new AtomicLong(100L);
+        CompletableFuture<Long> time = CompletableFuture.supplyAsync(() -> waiter.awaitAfter(now::get, 100L));
+
+        Thread.sleep(20L);
+        assertFalse(time.isDone());
+        now.set(102L);
+        assertEquals(Long.valueOf(102L), time.get(5, TimeUnit.SECONDS));
+
+        IdGeneratorMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(1L, snapshot.getExhaustionWaits());
+        assertTrue(snapshot.getWaitNanos() > 0L);
+    }
+
+    @Test
+    public void waitsOutClockThatIsBehindLastTime() {
+        MillisWaiter waiter = new MillisWaiter(new IdGeneratorMetrics());
+        long lastTime = System.currentTimeMillis() + 5L;
+        long time = waiter.awaitAfter(System::currentTimeMillis, lastTime);
+        assertTrue(time > lastTime);
+    }
+}
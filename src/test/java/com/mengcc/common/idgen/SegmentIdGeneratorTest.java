@@ -0,0 +1,150 @@
+package com.mengcc.common.idgen;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author zhouzq
+ * @date 2020/5/28
+ */
+public class SegmentIdGeneratorTest {
+
+    @Test
+    public void concurrentIdsAreUniqueAndIncreasingPerThread() throws Exception {
+        SegmentIdGenerator generator = new SegmentIdGenerator(new InMemorySegmentStore(), "order", 100);
+        long[][] perThread = IdGeneratorTests.generateConcurrently(generator, 8, 20000);
+        IdGeneratorTests.assertUniqueAndIncreasing(perThread);
+        assertEquals(8 * 20000L, generator.metricsSnapshot().getIssued());
+    }
+
+    @Test
+    public void slowPrefetchNeverLosesOrReordersSegments() {
+        CountingStore store = new CountingStore();
+        // 预取在号段用尽之后才真正租借, 切换号段的线程只能等待本号段登记的预取结果
+        Executor slowExecutor = task -> new Thread(() -> {
+            sleep(5L);
+            task.run();
+        }).start();
+        SegmentIdGenerator generator = new SegmentIdGenerator(store, "order", 10, 0.5D, slowExecutor);
+        for (long expected = 1; expected <= 1000; expected++) {
+            assertEquals(expected, generator.generateId());
+        }
+        // 每个号段恰好租借一次下一个号段
+        assertTrue(store.allocations.get() <= 1000 / 10 + 1);
+    }
+
+    @Test
+    public void rejectedPrefetchFallsBackToSynchronousAllocation() {
+        CountingStore store = new CountingStore();
+        Executor rejecting = task -> {
+            throw new RejectedExecutionException("rejected");
+        };
+        SegmentIdGenerator generator = new SegmentIdGenerator(store, "order", 10, 0.2D, rejecting);
+        for (long expected = 1; expected <= 100; expected++) {
+            assertEquals(expected, generator.generateId());
+        }
+        assertEquals(10, store.allocations.get());
+    }
+
+    @Test
+    public void failedPrefetchFallsBackToSynchronousAllocation() {
+        AtomicBoolean failNext = new AtomicBoolean();
+        CountingStore store = new CountingStore() {
+            @Override
+            public IdSegment allocate(String key, int step) {
+                if (failNext.getAndSet(false)) {
+                    throw new IllegalStateException("store is unavailable");
+                }
+                return super.allocate(key, step);
+            }
+        };
+        SegmentIdGenerator generator = new SegmentIdGenerator(store, "order", 10, 0.2D, Runnable::run);
+        failNext.set(true);
+        for (long expected = 1; expected <= 30; expected++) {
+            assertEquals(expected, generator.generateId());
+        }
+    }
+
+    @Test
+    public void exhaustedSegmentIsCountedOnceRegardlessOfWaitingThreads() throws Exception {
+        CountDownLatch allocating = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CountingStore store = new CountingStore() {
+            @Override
+            public IdSegment allocate(String key, int step) {
+                if (allocations.get() == 1) {
+                    allocating.countDown();
+                    await(release);
+                }
+                return super.allocate(key, step);
+            }
+        };
+        Executor rejecting = task -> {
+            throw new RejectedExecutionException("rejected");
+        };
+        SegmentIdGenerator generator = new SegmentIdGenerator(store, "order", 10, 1D, rejecting);
+        for (int i = 0; i < 10; i++) {
+            generator.generateId();
+        }
+
+        // 切换号段的线程阻塞在同步租借上，其余线程都在等锁
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Thread thread = new Thread(generator::generateId);
+            threads.add(thread);
+            thread.start();
+        }
+        allocating.await();
+        for (Thread thread : threads) {
+            while (thread.isAlive() && thread.getState() != Thread.State.BLOCKED && thread.getState() != Thread.State.WAITING) {
+                Thread.yield();
+            }
+        }
+        release.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        IdGeneratorMetrics.Snapshot snapshot = generator.metricsSnapshot();
+        assertEquals(18L, snapshot.getIssued());
+        assertEquals(1L, snapshot.getExhaustionWaits());
+        assertTrue(snapshot.getWaitNanos() > 0L);
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class CountingStore extends InMemorySegmentStore {
+
+        final AtomicInteger allocations = new AtomicInteger();
+
+        @Override
+        public IdSegment allocate(String key, int step) {
+            allocations.incrementAndGet();
+            return super.allocate(key, step);
+        }
+    }
+}
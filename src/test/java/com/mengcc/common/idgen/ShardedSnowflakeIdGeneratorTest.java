@@ -0,0 +1,75 @@
+package com.mengcc.common.idgen;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author zhouzq
+ * @date 2020/5/28
+ */
+public class ShardedSnowflakeIdGeneratorTest {
+
+    @Test
+    public void concurrentIdsAreUniqueAndIncreasingPerThread() throws Exception {
+        ShardedSnowflakeIdGenerator generator = new ShardedSnowflakeIdGenerator(1L, 2L, 4);
+        IdGeneratorTests.assertUniqueAndIncreasing(IdGeneratorTests.generateConcurrently(generator, 8, 50000));
+        assertEquals(8 * 50000L, generator.metricsSnapshot().getIssued());
+    }
+
+    @Test
+    public void stripesShareNoSequenceWithinMillisecond() {
+        AtomicLong now = new AtomicLong(System.currentTimeMillis());
+        ShardedSnowflakeIdGenerator generator = new ShardedSnowflakeIdGenerator(0L, 0L, 4, now::get);
+        long localSize = (SnowflakeLayout.DEFAULT.getSequenceMask() + 1) / 4;
+        long[] ids = new long[4 * (int) localSize];
+        int pos = 0;
+        for (int stripe = 0; stripe < 4; stripe++) {
+            for (long i = 0; i < localSize; i++) {
+                long id = generator.generateId(stripe);
+                // 分片号占序列段的高2位
+                assertEquals(stripe * localSize + i, SnowflakeIdGenerator.sequenceOf(id));
+                assertEquals(now.get(), SnowflakeIdGenerator.timestampOf(id));
+                ids[pos++] = id;
+            }
+        }
+        IdGeneratorTests.assertUnique(ids);
+    }
+
+    @Test
+    public void stripeIndexWrapsAroundShardCount() {
+        AtomicLong now = new AtomicLong(System.currentTimeMillis());
+        ShardedSnowflakeIdGenerator generator = new ShardedSnowflakeIdGenerator(0L, 0L, 2, now::get);
+        long a = generator.generateId(1);
+        long b = generator.generateId(3);
+        assertEquals(SnowflakeIdGenerator.sequenceOf(a) + 1, SnowflakeIdGenerator.sequenceOf(b));
+        assertEquals(2, generator.getShardCount());
+    }
+
+    @Test
+    public void rejectsShardCountThatIsNotPowerOfTwo() {
+        try {
+            new ShardedSnowflakeIdGenerator(0L, 0L, 3);
+            fail("shard count must be a power of two");
+        } catch (IllegalArgumentException expected) {
+            assertTrue(expected.getMessage().contains("power of two"));
+        }
+    }
+
+    @Test
+    public void rejectsShardCountThatOverflowsStateArray() {
+        SnowflakeLayout layout = SnowflakeLayout.builder()
+                .timestampBits(31).datacenterIdBits(0).workerIdBits(0).sequenceBits(32)
+                .build();
+        try {
+            new ShardedSnowflakeIdGenerator(layout, 0L, 0L, 1 << 30, SystemMillisClock.INSTANCE);
+            fail("state array length would overflow int");
+        } catch (IllegalArgumentException expected) {
+            assertTrue(expected.getMessage().contains("not be greater than"));
+        }
+    }
+}
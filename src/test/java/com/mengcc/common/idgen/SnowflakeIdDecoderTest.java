@@ -0,0 +1,56 @@
+package com.mengcc.common.idgen;
+
+import org.junit.Test;
+
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author zhouzq
+ * @date 2020/5/28
+ */
+public class SnowflakeIdDecoderTest {
+
+    @Test
+    public void columnarDecodeMatchesSingleIdAccessors() {
+        long[] ids = new SnowflakeIdGenerator(5L, 9L).generateIds(20000);
+        int n = ids.length;
+        long[] timestamps = new long[n];
+        long[] datacenterIds = new long[n];
+        long[] workerIds = new long[n];
+        long[] sequences = new long[n];
+        SnowflakeIdDecoder.DEFAULT.decode(ids, timestamps, datacenterIds, workerIds, sequences);
+        for (int i = 0; i < n; i++) {
+            assertEquals(SnowflakeIdGenerator.timestampOf(ids[i]), timestamps[i]);
+            assertEquals(5L, datacenterIds[i]);
+            assertEquals(9L, workerIds[i]);
+            assertEquals(SnowflakeIdGenerator.sequenceOf(ids[i]), sequences[i]);
+        }
+    }
+
+    @Test
+    public void parallelDecodeMatchesSequentialDecode() {
+        long[] ids = new SnowflakeIdGenerator(1L, 1L).generateIds(100000);
+        int n = ids.length;
+        long[][] expected = {new long[n], new long[n], new long[n], new long[n]};
+        long[][] actual = {new long[n], new long[n], new long[n], new long[n]};
+        SnowflakeIdDecoder.DEFAULT.decode(ids, expected[0], expected[1], expected[2], expected[3]);
+        SnowflakeIdDecoder.DEFAULT.parallelDecode(ids, actual[0], actual[1], actual[2], actual[3], ForkJoinPool.commonPool());
+        for (int c = 0; c < 4; c++) {
+            for (int i = 0; i < n; i++) {
+                assertEquals(expected[c][i], actual[c][i]);
+            }
+        }
+    }
+
+    @Test
+    public void nullColumnsAreSkipped() {
+        long[] ids = new SnowflakeIdGenerator(2L, 3L).generateIds(10);
+        long[] workerIds = new long[ids.length];
+        SnowflakeIdDecoder.DEFAULT.decode(ids, null, null, workerIds, null);
+        for (long workerId : workerIds) {
+            assertEquals(3L, workerId);
+        }
+    }
+}
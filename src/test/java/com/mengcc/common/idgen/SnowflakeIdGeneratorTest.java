@@ -0,0 +1,195 @@
+package com.mengcc.common.idgen;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author zhouzq
+ * @date 2020/5/28
+ */
+public class SnowflakeIdGeneratorTest {
+
+    @Test
+    public void concurrentIdsAreUniqueAndIncreasingPerThread() throws Exception {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(1L, 2L);
+        IdGeneratorTests.assertUniqueAndIncreasing(IdGeneratorTests.generateConcurrently(generator, 8, 50000));
+    }
+
+    @Test
+    public void fillSpanningMillisecondsWaitsForClock() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(0L, 0L);
+        long[] ids = generator.generateIds(10000);
+        IdGeneratorTests.assertIncreasing(ids);
+        // 预留了未来的毫秒时返回前等待时钟追上, 之后生成的ID不会早于这一批
+        assertTrue(System.currentTimeMillis() >= SnowflakeIdGenerator.timestampOf(ids[ids.length - 1]));
+        assertTrue(generator.generateId() > ids[ids.length - 1]);
+    }
+
+    @Test
+    public void fillWritesOnlyTheRequestedRange() {
+        long[] ids = new long[10];
+        new SnowflakeIdGenerator(0L, 0L).fill(ids, 3, 4);
+        assertEquals(0L, ids[2]);
+        assertEquals(0L, ids[7]);
+        for (int i = 3; i < 7; i++) {
+            assertTrue(ids[i] > 0L);
+        }
+    }
+
+    @Test
+    public void concurrentFillAndGenerateAreUnique() throws Exception {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(0L, 0L);
+        int threads = 8;
+        int rounds = 200;
+        int batch = 500;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<long[]>> futures = new ArrayList<>(threads);
+            for (int t = 0; t < threads; t++) {
+                futures.add(executor.submit(() -> {
+                    long[] ids = new long[rounds * (batch + 1)];
+                    start.await();
+                    int pos = 0;
+                    for (int r = 0; r < rounds; r++) {
+                        generator.fill(ids, pos, batch);
+                        pos += batch;
+                        ids[pos++] = generator.generateId();
+                    }
+                    return ids;
+                }));
+            }
+            start.countDown();
+            long[][] perThread = new long[threads][];
+            for (int t = 0; t < threads; t++) {
+                perThread[t] = futures.get(t).get(60, TimeUnit.SECONDS);
+            }
+            IdGeneratorTests.assertUniqueAndIncreasing(perThread);
+            assertEquals((long) threads * rounds * (batch + 1), generator.metricsSnapshot().getIssued());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void tickingClockGeneratesUniqueIds() throws Exception {
+        try (TickingMillisClock clock = new TickingMillisClock()) {
+            SnowflakeIdGenerator generator = new SnowflakeIdGenerator(0L, 0L, clock);
+            IdGeneratorTests.assertUniqueAndIncreasing(IdGeneratorTests.generateConcurrently(generator, 4, 20000));
+        }
+    }
+
+    @Test
+    public void failPolicyCountsOneRollbackPerEvent() {
+        AtomicLong now = new AtomicLong(System.currentTimeMillis());
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(0L, 0L, now::get);
+        generator.generateId();
+        now.addAndGet(-5L);
+        for (int i = 0; i < 3; i++) {
+            try {
+                generator.generateId();
+                fail("clock moved backwards");
+            } catch (IllegalStateException expected) {
+                // 回拨期间每次调用都抛出异常
+            }
+            now.incrementAndGet();
+        }
+        assertEquals(1L, generator.getClockBackwardsCounters().getFailures());
+        assertEquals(1L, generator.metricsSnapshot().getClockBackwards());
+
+        // 追上之后再次回拨, 计为新的一次
+        now.addAndGet(10L);
+        generator.generateId();
+        now.addAndGet(-3L);
+        try {
+            generator.generateId();
+            fail("clock moved backwards");
+        } catch (IllegalStateException expected) {
+            assertEquals(2L, generator.getClockBackwardsCounters().getFailures());
+        }
+    }
+
+    @Test
+    public void waitPolicyWaitsForClockToCatchUp() throws Exception {
+        AtomicLong now = new AtomicLong(System.currentTimeMillis());
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(0L, 0L, now::get, ClockBackwardsPolicy.waitAtMost(10L));
+        long last = generator.generateId();
+        now.addAndGet(-3L);
+
+        CompletableFuture<Long> first = CompletableFuture.supplyAsync(generator::generateId);
+        CompletableFuture<Long> second = CompletableFuture.supplyAsync(generator::generateId);
+        try {
+            first.get(50, TimeUnit.MILLISECONDS);
+            fail("generator should wait for the clock to catch up");
+        } catch (TimeoutException expected) {
+            // 时钟未追上时一直等待
+        }
+        now.addAndGet(4L);
+        long a = first.get(5, TimeUnit.SECONDS);
+        long b = second.get(5, TimeUnit.SECONDS);
+        assertTrue(a > last && b > last && a != b);
+        assertEquals(1L, generator.getClockBackwardsCounters().getWaits());
+        assertEquals(1L, generator.metricsSnapshot().getClockBackwards());
+
+        now.addAndGet(-20L);
+        try {
+            generator.generateId();
+            fail("rollback exceeds the tolerance");
+        } catch (IllegalStateException expected) {
+            assertEquals(1L, generator.getClockBackwardsCounters().getFailures());
+        }
+    }
+
+    @Test
+    public void borrowPolicyKeepsIdsIncreasing() {
+        AtomicLong now = new AtomicLong(System.currentTimeMillis());
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(0L, 0L, now::get, ClockBackwardsPolicy.borrowAtMost(5L));
+        long last = generator.generateId();
+        now.addAndGet(-2L);
+        // 借用上次的时间截及之后的3个毫秒, 超过4096个ID
+        long[] ids = new long[10000];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = generator.generateId();
+        }
+        IdGeneratorTests.assertIncreasing(ids);
+        assertTrue(ids[0] > last);
+        assertTrue(SnowflakeIdGenerator.timestampOf(ids[ids.length - 1]) - now.get() <= 5L);
+        assertEquals(1L, generator.getClockBackwardsCounters().getBorrows());
+        assertEquals(1L, generator.metricsSnapshot().getClockBackwards());
+    }
+
+    @Test
+    public void backupWorkerPolicySwitchesWorkerId() {
+        AtomicLong now = new AtomicLong(System.currentTimeMillis());
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(0L, 1L, now::get, ClockBackwardsPolicy.backupWorker(2L));
+        long last = generator.generateId();
+        now.addAndGet(-5L);
+        long[] backup = new long[100];
+        for (int i = 0; i < backup.length; i++) {
+            backup[i] = generator.generateId();
+            assertEquals(2L, SnowflakeIdGenerator.workerOf(backup[i]));
+        }
+        IdGeneratorTests.assertIncreasing(backup);
+        assertEquals(1L, generator.getClockBackwardsCounters().getFailovers());
+
+        now.addAndGet(10L);
+        long resumed = generator.generateId();
+        assertEquals(1L, SnowflakeIdGenerator.workerOf(resumed));
+        assertTrue(resumed > last);
+        assertEquals(1L, generator.metricsSnapshot().getClockBackwards());
+    }
+}
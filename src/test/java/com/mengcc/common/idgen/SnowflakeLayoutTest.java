@@ -0,0 +1,70 @@
+package com.mengcc.common.idgen;
+
+import com.mengcc.common.vo.IdVo;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * @author zhouzq
+ * @date 2020/5/28
+ */
+public class SnowflakeLayoutTest {
+
+    private static final SnowflakeLayout CLUSTER = SnowflakeLayout.builder()
+            .timestampBits(41).datacenterIdBits(5).workerIdBits(9).sequenceBits(8)
+            .epoch(1577808000000L)
+            .build();
+
+    @Test
+    public void composeAndDecodeRoundTrip() {
+        long now = System.currentTimeMillis();
+        long id = CLUSTER.compose(now, CLUSTER.nodeBits(31L, 511L), 255L);
+        assertEquals(now, CLUSTER.timestampOf(id));
+        assertEquals(31L, CLUSTER.datacenterIdOf(id));
+        assertEquals(511L, CLUSTER.workerIdOf(id));
+        assertEquals(255L, CLUSTER.sequenceOf(id));
+    }
+
+    @Test
+    public void generatorUsesCustomLayout() {
+        SnowflakeIdGenerator generator = new SnowflakeIdGenerator(CLUSTER, 3L, 300L);
+        long[] ids = generator.generateIds(1000);
+        IdGeneratorTests.assertIncreasing(ids);
+        IdVo vo = SnowflakeIdGenerator.analysisId(ids[0], CLUSTER);
+        assertEquals(3L, vo.getDatacenterId());
+        assertEquals(300L, vo.getWorkerId());
+        assertEquals(CLUSTER.timestampOf(ids[0]), vo.getTimeStamp());
+    }
+
+    @Test
+    public void rejectsBitsThatDoNotAddUpTo63() {
+        try {
+            SnowflakeLayout.builder().timestampBits(41).datacenterIdBits(5).workerIdBits(5).sequenceBits(13).build();
+            fail("bits add up to 64");
+        } catch (IllegalArgumentException expected) {
+            // 四段位数之和必须为63
+        }
+    }
+
+    @Test
+    public void rejectsNodeIdsOutOfRange() {
+        try {
+            CLUSTER.nodeBits(0L, 512L);
+            fail("worker id exceeds 9 bits");
+        } catch (IllegalArgumentException expected) {
+            // 机器id超出位数
+        }
+    }
+
+    @Test
+    public void rejectsTimestampBeforeEpoch() {
+        try {
+            CLUSTER.checkTimestamp(CLUSTER.getEpoch() - 1L);
+            fail("timestamp is before epoch");
+        } catch (IllegalStateException expected) {
+            // 时间截早于开始时间截
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.mengcc.common.idgen;
+
+import com.mengcc.common.exceptions.FrameworkException;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.RandomAccessFile;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author zhouzq
+ * @date 2020/5/28
+ */
+public class WorkerIdAssignerTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void inMemoryAssignerHandsOutDistinctIds() {
+        InMemoryWorkerIdAssigner assigner = new InMemoryWorkerIdAssigner(1L);
+        try (WorkerIdLease first = assigner.acquire(); WorkerIdLease second = assigner.acquire()) {
+            assertNotEquals(first.getWorkerId(), second.getWorkerId());
+            assertNoneLeft(assigner);
+        }
+        // 释放后可以再次租借
+        assigner.acquire().close();
+    }
+
+    @Test
+    public void fileLockAssignerHandsOutDistinctIds() throws Exception {
+        Path directory = folder.newFolder("workers").toPath();
+        FileLockWorkerIdAssigner assigner = new FileLockWorkerIdAssigner(directory, 1L);
+        try (WorkerIdLease first = assigner.acquire();
+             WorkerIdLease second = new FileLockWorkerIdAssigner(directory, 1L).acquire()) {
+            assertNotEquals(first.getWorkerId(), second.getWorkerId());
+            assertNoneLeft(assigner);
+        }
+        assigner.acquire().close();
+    }
+
+    @Test
+    public void heartbeatRenewsFileLease() throws Exception {
+        Path directory = folder.newFolder("workers").toPath();
+        try (WorkerIdLease lease = new FileLockWorkerIdAssigner(directory, 0L, 60L).acquire()) {
+            Path file = directory.resolve("worker-" + lease.getWorkerId() + ".lock");
+            long claimed = readHeartbeat(file);
+            Thread.sleep(200L);
+            assertTrue(lease.isValid());
+            assertTrue(readHeartbeat(file) > claimed);
+        }
+    }
+
+    @Test
+    public void closedLeaseIsInvalidAndClearsHeartbeat() throws Exception {
+        Path directory = folder.newFolder("workers").toPath();
+        WorkerIdLease lease = new FileLockWorkerIdAssigner(directory, 0L).acquire();
+        lease.close();
+        assertFalse(lease.isValid());
+        assertEquals(0L, readHeartbeat(directory.resolve("worker-0.lock")));
+    }
+
+    private static void assertNoneLeft(WorkerIdAssigner assigner) {
+        try {
+            assigner.acquire();
+            fail("all worker ids are leased");
+        } catch (FrameworkException expected) {
+            // 机器id已分配完
+        }
+    }
+
+    private static long readHeartbeat(Path file) throws Exception {
+        // 文件被持有者加锁, 只读打开读取内容
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "r")) {
+            return raf.length() < Long.BYTES ? 0L : raf.readLong();
+        }
+    }
+}
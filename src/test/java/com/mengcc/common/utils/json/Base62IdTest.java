@@ -0,0 +1,44 @@
+package com.mengcc.common.utils.json;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mengcc.common.idgen.Base62IdCodec;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * @author zhouzq
+ * @date 2020/5/28
+ */
+public class Base62IdTest {
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @Test
+    public void annotatedFieldRoundTripsAsBase62String() throws Exception {
+        OrderVo order = new OrderVo();
+        order.id = 1234567890123456789L;
+        order.amount = 100L;
+        String json = mapper.writeValueAsString(order);
+        assertEquals("{\"id\":\"" + Base62IdCodec.encode(order.id) + "\",\"amount\":100}", json);
+
+        OrderVo read = mapper.readValue(json, OrderVo.class);
+        assertEquals(order.id, read.id);
+        assertEquals(order.amount, read.amount);
+    }
+
+    @Test
+    public void deserializerAcceptsNumbersAndNull() throws Exception {
+        assertEquals(Long.valueOf(42L), mapper.readValue("{\"id\":42}", OrderVo.class).id);
+        assertNull(mapper.readValue("{\"id\":null}", OrderVo.class).id);
+    }
+
+    public static class OrderVo {
+
+        @Base62Id
+        public Long id;
+
+        public Long amount;
+    }
+}
@@ -0,0 +1,120 @@
+package com.mengcc.common.utils.thread;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author zhouzq
+ * @date 2020/5/28
+ */
+public class ExecutorRegistryTest {
+
+    @Test
+    public void executorIsCreatedOnceFromSpec() throws Exception {
+        ExecutorRegistry.register(ExecutorSpec.builder("registry-test-report")
+                .corePoolSize(2).maximumPoolSize(4)
+                .queue(ExecutorSpec.QueueType.ARRAY, 8)
+                .rejectionPolicy(ExecutorSpec.RejectionPolicy.CALLER_RUNS)
+                .threadNamePrefix("report")
+                .daemon(true)
+                .build());
+        assertNull(ExecutorRegistry.peekExecutor("registry-test-report"));
+
+        List<CompletableFuture<ThreadPoolExecutor>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(CompletableFuture.supplyAsync(() -> ExecutorRegistry.getExecutor("registry-test-report")));
+        }
+        ThreadPoolExecutor executor = ExecutorRegistry.getExecutor("registry-test-report");
+        try {
+            for (CompletableFuture<ThreadPoolExecutor> future : futures) {
+                assertSame(executor, future.get());
+            }
+            assertTrue(executor instanceof InstrumentedThreadPoolExecutor);
+            assertEquals(2, executor.getCorePoolSize());
+            assertEquals(4, executor.getMaximumPoolSize());
+            assertTrue(executor.getQueue() instanceof ArrayBlockingQueue);
+            assertEquals(8, executor.getQueue().remainingCapacity());
+            assertTrue(ExecutorRegistry.getSpec("registry-test-report").newRejectedExecutionHandler()
+                    instanceof ThreadPoolExecutor.CallerRunsPolicy);
+            Thread worker = executor.submit(Thread::currentThread).get();
+            assertTrue(worker.getName().startsWith("report-"));
+            assertTrue(worker.isDaemon());
+            assertTrue(ExecutorRegistry.metricsSnapshot().containsKey("registry-test-report"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void specCannotBeReplacedAfterCreation() {
+        ExecutorRegistry.register(ExecutorSpec.builder("registry-test-once").corePoolSize(1).build());
+        ThreadPoolExecutor executor = ExecutorRegistry.getExecutor("registry-test-once");
+        try {
+            ExecutorRegistry.register(ExecutorSpec.builder("registry-test-once").corePoolSize(2).build());
+            fail("executor has already been created");
+        } catch (IllegalStateException expected) {
+            // 已创建的线程池不能再改声明
+        } finally {
+            executor.shutdownNow();
+        }
+        assertEquals(1, ExecutorRegistry.getSpec("registry-test-once").getCorePoolSize());
+    }
+
+    @Test
+    public void scheduledExecutorIsNotInstrumented() {
+        ExecutorRegistry.register(ExecutorSpec.builder("registry-test-scheduled").corePoolSize(1).scheduled(true).build());
+        ThreadPoolExecutor executor = ExecutorRegistry.getExecutor("registry-test-scheduled");
+        try {
+            assertTrue(executor instanceof ScheduledThreadPoolExecutor);
+            assertFalse(ExecutorRegistry.metricsSnapshot().containsKey("registry-test-scheduled"));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void unknownNameIsRejected() {
+        try {
+            ExecutorRegistry.getExecutor("registry-test-unknown");
+            fail("no such executor");
+        } catch (IllegalArgumentException expected) {
+            // 没有声明的线程池
+        }
+        assertNull(ExecutorRegistry.peekExecutor("registry-test-unknown"));
+    }
+
+    @Test
+    public void specDefaultsAndValidation() {
+        ExecutorSpec spec = ExecutorSpec.builder("registry-test-spec").corePoolSize(3).keepAlive(2L, TimeUnit.SECONDS).build();
+        assertEquals(3, spec.getMaximumPoolSize());
+        assertEquals(2000L, spec.getKeepAliveMillis());
+        assertEquals("registry-test-spec", spec.getThreadNamePrefix());
+        assertEquals(ExecutorSpec.RejectionPolicy.ABORT, spec.getRejectionPolicy());
+        try {
+            ExecutorSpec.builder("registry-test-spec").corePoolSize(4).maximumPoolSize(2).build();
+            fail("maximum pool size is less than core pool size");
+        } catch (IllegalArgumentException expected) {
+            // 最大线程数不能小于核心线程数
+        }
+        try {
+            ExecutorSpec.builder("registry-test-spec").queue(ExecutorSpec.QueueType.ARRAY, 0).build();
+            fail("array queue needs a capacity");
+        } catch (IllegalArgumentException expected) {
+            // 有界队列容量必须大于0
+        }
+    }
+}
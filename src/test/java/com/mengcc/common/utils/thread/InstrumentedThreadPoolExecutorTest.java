@@ -0,0 +1,174 @@
+package com.mengcc.common.utils.thread;
+
+import com.mengcc.common.context.ContextPropagation;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author zhouzq
+ * @date 2020/5/28
+ */
+public class InstrumentedThreadPoolExecutorTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final List<Runnable> executed = new CopyOnWriteArrayList<>();
+
+    private final InstrumentedThreadPoolExecutor executor = new InstrumentedThreadPoolExecutor("test", 1, 1,
+            0L, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), new NamedThreadFactory("instrumented-test", true),
+            new ThreadPoolExecutor.AbortPolicy()) {
+        @Override
+        protected void afterExecute(Runnable r, Throwable t) {
+            super.afterExecute(r, t);
+            executed.add(r);
+        }
+    };
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void recordsQueueWaitForSubmittedTasksAndExecutionForAll() throws Exception {
+        Future<?> blocker = executor.submit(() -> {
+            awaitRelease();
+            sleep(20L);
+        });
+        Future<?> queued = executor.submit(() -> { });
+        Runnable plain = () -> { };
+        executor.execute(plain);
+        sleep(20L);
+        release.countDown();
+        blocker.get(5, TimeUnit.SECONDS);
+        queued.get(5, TimeUnit.SECONDS);
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        ExecutorMetrics.Snapshot snapshot = executor.metricsSnapshot();
+        assertEquals(3L, snapshot.getCompleted());
+        assertEquals(3L, snapshot.getExecution().getCount());
+        assertEquals(2L, snapshot.getQueueWait().getCount());
+        assertTrue(snapshot.getQueueWait().getMax() >= TimeUnit.MILLISECONDS.toNanos(20L));
+        assertTrue(snapshot.getExecution().getMax() >= TimeUnit.MILLISECONDS.toNanos(20L));
+        // afterExecute看到的是提交的原始任务
+        assertSame(blocker, executed.get(0));
+        assertSame(queued, executed.get(1));
+        assertSame(plain, executed.get(2));
+    }
+
+    @Test
+    public void recordsQueueWaitForExecutedTasksWrappedWithContext() throws Exception {
+        ThreadPoolUtils pool = new ThreadPoolUtils() {
+            @Override
+            public void execute(Runnable r) {
+                executor.execute(ContextPropagation.runnable(r));
+            }
+
+            @Override
+            public <V> Future<V> submit(Callable<V> r) {
+                return executor.submit(ContextPropagation.callable(r));
+            }
+
+            @Override
+            public void cancel(Runnable r) {
+            }
+        };
+        pool.execute(this::awaitRelease);
+        Runnable task = () -> { };
+        pool.execute(task);
+        CompletableFuture<Integer> async = pool.supplyAsync(() -> 1);
+        sleep(20L);
+        release.countDown();
+        assertEquals(Integer.valueOf(1), async.get(5, TimeUnit.SECONDS));
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+
+        // execute提交的任务同样记录排队等待时间
+        ExecutorMetrics.Snapshot snapshot = executor.metricsSnapshot();
+        assertEquals(3L, snapshot.getCompleted());
+        assertEquals(3L, snapshot.getQueueWait().getCount());
+        assertTrue(snapshot.getQueueWait().getMax() >= TimeUnit.MILLISECONDS.toNanos(20L));
+        assertSame(task, InstrumentedThreadPoolExecutor.unwrap(executed.get(1)));
+    }
+
+    @Test
+    public void queuedTasksCanBeRemovedAndPurged() throws Exception {
+        executor.submit(this::awaitRelease);
+        Runnable plain = () -> fail("removed task must not run");
+        executor.execute(plain);
+        Future<?> cancelled = executor.submit(() -> fail("cancelled task must not run"));
+
+        assertTrue(executor.remove(plain));
+        cancelled.cancel(false);
+        executor.purge();
+        assertEquals(0, executor.getQueue().size());
+
+        Runnable pending = () -> { };
+        executor.execute(pending);
+        List<Runnable> drained = executor.shutdownNow();
+        assertEquals(1, drained.size());
+        assertSame(pending, drained.get(0));
+    }
+
+    @Test
+    public void rejectionIsCountedAndHandlerSeesOriginalTask() throws Exception {
+        List<Runnable> rejected = new CopyOnWriteArrayList<>();
+        InstrumentedThreadPoolExecutor bounded = new InstrumentedThreadPoolExecutor("bounded", 1, 1,
+                0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1), new NamedThreadFactory("bounded-test", true),
+                (r, e) -> {
+                    rejected.add(r);
+                    throw new RejectedExecutionException("full");
+                });
+        try {
+            bounded.execute(this::awaitRelease);
+            bounded.execute(() -> { });
+            Runnable overflow = () -> { };
+            try {
+                bounded.execute(overflow);
+                fail("queue is full");
+            } catch (RejectedExecutionException expected) {
+                // 队列已满
+            }
+            assertEquals(1L, bounded.metricsSnapshot().getRejected());
+            assertSame(overflow, rejected.get(0));
+        } finally {
+            release.countDown();
+            bounded.shutdownNow();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void awaitRelease() {
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.mengcc.common.utils.thread;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author zhouzq
+ * @date 2020/5/28
+ */
+public class LatencyHistogramTest {
+
+    @Test
+    public void bucketsCoverEveryValueWithBoundedError() {
+        long[] values = {0L, 1L, 3L, 4L, 5L, 7L, 8L, 1000L, 123456789L, Long.MAX_VALUE};
+        for (long value : values) {
+            int index = LatencyHistogram.indexOf(value);
+            long upper = LatencyHistogram.upperBoundOf(index);
+            assertTrue(value + " <= " + upper, value <= upper);
+            if (index > 0) {
+                assertTrue(value + " > " + LatencyHistogram.upperBoundOf(index - 1), value > LatencyHistogram.upperBoundOf(index - 1));
+            }
+            assertTrue(upper - value <= value / 4);
+        }
+    }
+
+    @Test
+    public void snapshotReportsCountSumMaxAndPercentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0L, histogram.snapshot().getPercentile(99));
+        for (long i = 1; i <= 1000; i++) {
+            histogram.record(i * 1000L);
+        }
+        histogram.record(-5L);
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(1001L, snapshot.getCount());
+        assertEquals(500500000L, snapshot.getSum());
+        assertEquals(1000000L, snapshot.getMax());
+        assertEquals(1000000L, snapshot.getPercentile(100));
+        long p50 = snapshot.getPercentile(50);
+        assertTrue(String.valueOf(p50), p50 >= 500000L && p50 <= 500000L * 5 / 4);
+        long p99 = snapshot.getPercentile(99);
+        assertTrue(String.valueOf(p99), p99 >= 990000L && p99 <= 1000000L);
+    }
+}
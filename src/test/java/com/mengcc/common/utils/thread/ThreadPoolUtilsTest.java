@@ -0,0 +1,157 @@
+package com.mengcc.common.utils.thread;
+
+import com.mengcc.common.context.ContextPropagation;
+import com.mengcc.common.context.ThreadContext;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * @author zhouzq
+ * @date 2020/5/28
+ */
+public class ThreadPoolUtilsTest {
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(new NamedThreadFactory("pool-utils-test", true));
+
+    private final ThreadPoolUtils pool = new ThreadPoolUtils() {
+        @Override
+        public void execute(Runnable r) {
+            executor.execute(ContextPropagation.runnable(r));
+        }
+
+        @Override
+        public <V> Future<V> submit(Callable<V> r) {
+            return executor.submit(ContextPropagation.callable(r));
+        }
+
+        @Override
+        public void cancel(Runnable r) {
+        }
+    };
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        executor.shutdownNow();
+        ThreadContext.close();
+    }
+
+    @Test
+    public void supplyAsyncCompletesWithResultOrException() throws Exception {
+        ThreadContext.set("ThreadPoolUtilsTest.traceId", "t-1");
+        assertEquals("t-1", pool.supplyAsync(() -> ThreadContext.<String>get("ThreadPoolUtilsTest.traceId")).get(5, TimeUnit.SECONDS));
+
+        AtomicBoolean ran = new AtomicBoolean();
+        pool.runAsync(() -> ran.set(true)).get(5, TimeUnit.SECONDS);
+        assertTrue(ran.get());
+
+        try {
+            pool.supplyAsync(() -> {
+                throw new IllegalStateException("boom");
+            }).get(5, TimeUnit.SECONDS);
+            fail("task failed");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IllegalStateException);
+        }
+    }
+
+    @Test
+    public void cancelledFutureSkipsTask() throws Exception {
+        pool.execute(this::awaitRelease);
+        AtomicBoolean ran = new AtomicBoolean();
+        CompletableFuture<Void> future = pool.runAsync(() -> ran.set(true));
+        future.cancel(false);
+        release.countDown();
+        pool.supplyAsync(() -> null).get(5, TimeUnit.SECONDS);
+        assertFalse(ran.get());
+    }
+
+    @Test
+    public void invokeAllExpiresUnfinishedTasksAtDeadline() throws Exception {
+        AtomicInteger started = new AtomicInteger();
+        List<Callable<String>> tasks = Arrays.asList(
+                () -> "fast",
+                () -> {
+                    started.incrementAndGet();
+                    awaitRelease();
+                    return "slow";
+                },
+                () -> {
+                    started.incrementAndGet();
+                    return "queued";
+                });
+        List<CompletableFuture<String>> futures = pool.invokeAll(tasks, 50L, TimeUnit.MILLISECONDS);
+        try {
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(5, TimeUnit.SECONDS);
+            fail("slow task must time out");
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        assertEquals("fast", futures.get(0).get());
+        assertTrue(futures.get(1).isCompletedExceptionally());
+        assertTrue(futures.get(2).isCompletedExceptionally());
+
+        // 超时后尚未开始的任务不再执行
+        release.countDown();
+        pool.supplyAsync(() -> null).get(5, TimeUnit.SECONDS);
+        assertEquals(1, started.get());
+    }
+
+    @Test
+    public void invokeAllFailsAllFuturesWhenSubmissionIsRejected() {
+        AtomicInteger submitted = new AtomicInteger();
+        ThreadPoolUtils rejecting = new ThreadPoolUtils() {
+            @Override
+            public void execute(Runnable r) {
+                if (submitted.incrementAndGet() > 1) {
+                    throw new RejectedExecutionException("full");
+                }
+            }
+
+            @Override
+            public <V> Future<V> submit(Callable<V> r) {
+                throw new UnsupportedOperationException();
+            }
+
+            @Override
+            public void cancel(Runnable r) {
+            }
+        };
+        try {
+            rejecting.invokeAll(Arrays.<Callable<String>>asList(() -> "a", () -> "b"), 1L, TimeUnit.SECONDS);
+            fail("second task is rejected");
+        } catch (RejectedExecutionException expected) {
+            // 已提交的任务随之失败
+        }
+    }
+
+    private void awaitRelease() {
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}